@@ -0,0 +1,81 @@
+package com.roughike.bottombar.benchmarks;
+
+import com.roughike.bottombar.core.BottomBarModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Setting the items and working out the presentation for them, which
+ * BottomBar does whenever the items change and on every measure pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ItemUpdateBenchmark {
+    // In pixels, as on a xxhdpi phone.
+    private static final int AVAILABLE_WIDTH = 1080;
+    private static final int MIN_FIXED_ITEM_WIDTH = 240;
+    private static final int MAX_FIXED_ITEM_WIDTH = 504;
+    private static final int SMALLEST_WIDTH = 1080;
+    private static final int TABLET_MODE_MIN_WIDTH = 1800;
+
+    @Param({"3", "5"})
+    public int tabCount;
+
+    private BottomBarModel mModel;
+
+    @Setup
+    public void setUp() {
+        mModel = new BottomBarModel();
+    }
+
+    @Benchmark
+    public void updateItems(Blackhole blackhole) {
+        mModel.setTabCount(tabCount);
+        blackhole.consume(BottomBarModel.isTabletMode(SMALLEST_WIDTH, TABLET_MODE_MIN_WIDTH));
+        blackhole.consume(BottomBarModel.isShiftingMode(tabCount, AVAILABLE_WIDTH, MIN_FIXED_ITEM_WIDTH));
+
+        for (int i = 0; i < tabCount; i++) {
+            blackhole.consume(mModel.getBackgroundColor(i, 0xFFFFFFFF));
+        }
+    }
+
+    @Benchmark
+    public int measureTabWidths() {
+        return BottomBarModel.computeTabWidth(AVAILABLE_WIDTH, tabCount, MAX_FIXED_ITEM_WIDTH);
+    }
+
+    @Benchmark
+    public BottomBarModel copyForConfigurationChange() {
+        return new BottomBarModel(mModel);
+    }
+}
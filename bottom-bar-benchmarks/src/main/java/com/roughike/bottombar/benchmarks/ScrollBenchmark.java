@@ -0,0 +1,91 @@
+package com.roughike.bottombar.benchmarks;
+
+import com.roughike.bottombar.core.ScrollDirectionTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Feeding scroll deltas to the direction tracker, as the shy
+ * BottomBar does for every nested scroll event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScrollBenchmark {
+    private static final int EVENT_COUNT = 1024;
+
+    private final ScrollDirectionTracker mTracker = new ScrollDirectionTracker();
+    private final ScrollDirectionTracker mHysteresisTracker = new ScrollDirectionTracker();
+    private final int[] mDeltas = new int[EVENT_COUNT];
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        // Runs of scrolling in one direction with the occasional
+        // jitter, like a real finger produces. Fixed seed, so the
+        // runs are comparable.
+        mHysteresisTracker.setThresholds(24, 150f);
+
+        Random random = new Random(42);
+        int direction = 1;
+
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            if (random.nextInt(32) == 0) {
+                direction = -direction;
+            }
+
+            int delta = 1 + random.nextInt(40);
+            mDeltas[i] = random.nextInt(10) == 0 ? -direction * delta : direction * delta;
+        }
+    }
+
+    @Benchmark
+    public int scroll() {
+        int dy = mDeltas[mIndex];
+        mIndex = (mIndex + 1) & (EVENT_COUNT - 1);
+        return mTracker.onScroll(dy);
+    }
+
+    @Benchmark
+    public int scrollWithHysteresis() {
+        int dy = mDeltas[mIndex];
+        mIndex = (mIndex + 1) & (EVENT_COUNT - 1);
+        return mHysteresisTracker.onScroll(dy);
+    }
+
+    @Benchmark
+    public int overScroll() {
+        int dy = mDeltas[mIndex];
+        mIndex = (mIndex + 1) & (EVENT_COUNT - 1);
+        return mTracker.onOverScroll(dy);
+    }
+}
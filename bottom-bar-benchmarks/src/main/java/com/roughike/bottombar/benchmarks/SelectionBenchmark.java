@@ -0,0 +1,67 @@
+package com.roughike.bottombar.benchmarks;
+
+import com.roughike.bottombar.core.BottomBarModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Selecting tabs one after another, as when the user taps through them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SelectionBenchmark {
+    private static final int TAB_COUNT = 5;
+
+    private BottomBarModel mModel;
+    private int mNextPosition;
+
+    @Setup
+    public void setUp() {
+        mModel = new BottomBarModel();
+        mModel.setTabCount(TAB_COUNT);
+
+        for (int i = 0; i < TAB_COUNT; i += 2) {
+            mModel.mapColor(i, 0xFF000000 | i);
+        }
+    }
+
+    @Benchmark
+    public int selectNextTab() {
+        mNextPosition = (mNextPosition + 1) % TAB_COUNT;
+        mModel.select(mNextPosition);
+        return mModel.getSelectedBackgroundColor(0xFFFFFFFF);
+    }
+
+    @Benchmark
+    public int reselectSameTab() {
+        return mModel.select(mModel.getSelectedPosition());
+    }
+}
@@ -0,0 +1,212 @@
+package com.roughike.bottombar.core;
+
+import java.util.Arrays;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * The state of a BottomBar without any of the Views: which tab is
+ * selected, how the tabs are presented and what color the background
+ * should be. The Android side drives this and renders the results.
+ * <p/>
+ * Doesn't depend on Android, so it can be tested and benchmarked on
+ * a plain JVM. Not thread-safe, use it from the main thread only.
+ */
+public class BottomBarModel {
+    /**
+     * Returned from {@link #select(int)} when the position was already selected.
+     */
+    public static final int NO_POSITION = -1;
+
+    /**
+     * More tabs than this always use the shifting presentation.
+     */
+    public static final int MAX_FIXED_TAB_COUNT = 3;
+
+    private int mTabCount;
+    private int mSelectedPosition;
+
+    private int[] mMappedColors = new int[0];
+    private boolean[] mHasMappedColor = new boolean[0];
+
+    public BottomBarModel() {
+    }
+
+    /**
+     * Copies the mapped colors of another model, but not the tabs
+     * or the selection. Used when the BottomBar is rebuilt after a
+     * configuration change.
+     */
+    public BottomBarModel(BottomBarModel source) {
+        mMappedColors = Arrays.copyOf(source.mMappedColors, source.mMappedColors.length);
+        mHasMappedColor = Arrays.copyOf(source.mHasMappedColor, source.mHasMappedColor.length);
+    }
+
+    /**
+     * Sets the amount of tabs. The selected position is kept, unless
+     * it's no longer valid, in which case the first tab is selected.
+     */
+    public void setTabCount(int tabCount) {
+        if (tabCount < 0) {
+            throw new IllegalArgumentException("Tab count can't be negative: " + tabCount);
+        }
+
+        mTabCount = tabCount;
+
+        if (mSelectedPosition >= tabCount) {
+            mSelectedPosition = 0;
+        }
+    }
+
+    public int getTabCount() {
+        return mTabCount;
+    }
+
+    public int getSelectedPosition() {
+        return mSelectedPosition;
+    }
+
+    /**
+     * Sets the selected position without any checks, for restoring
+     * the state before the tabs have been set.
+     */
+    public void restoreSelectedPosition(int position) {
+        mSelectedPosition = position < 0 ? 0 : position;
+    }
+
+    /**
+     * Selects the tab at the given position.
+     *
+     * @return the previously selected position, or {@link #NO_POSITION}
+     * if the position was already selected.
+     */
+    public int select(int position) {
+        if (position < 0 || position >= mTabCount) {
+            throw new IndexOutOfBoundsException("Can't select tab at position " +
+                    position + ". There are " + mTabCount + " tabs.");
+        }
+
+        if (position == mSelectedPosition) {
+            return NO_POSITION;
+        }
+
+        int oldPosition = mSelectedPosition;
+        mSelectedPosition = position;
+        return oldPosition;
+    }
+
+    /**
+     * Maps a background color for the tab at the given position.
+     * The mapping is kept even if the tabs change.
+     */
+    public void mapColor(int position, int color) {
+        if (position < 0) {
+            throw new IndexOutOfBoundsException("Can't map color for tab at position " + position);
+        }
+
+        if (position >= mMappedColors.length) {
+            int newLength = Math.max(position + 1, mMappedColors.length * 2);
+            mMappedColors = Arrays.copyOf(mMappedColors, newLength);
+            mHasMappedColor = Arrays.copyOf(mHasMappedColor, newLength);
+        }
+
+        mMappedColors[position] = color;
+        mHasMappedColor[position] = true;
+    }
+
+    public boolean hasMappedColor(int position) {
+        return position >= 0 && position < mHasMappedColor.length && mHasMappedColor[position];
+    }
+
+    /**
+     * @return the mapped color for the tab at the given position, or the
+     * default color if there's none.
+     */
+    public int getBackgroundColor(int position, int defaultColor) {
+        return hasMappedColor(position) ? mMappedColors[position] : defaultColor;
+    }
+
+    /**
+     * @return the background color for the currently selected tab.
+     */
+    public int getSelectedBackgroundColor(int defaultColor) {
+        return getBackgroundColor(mSelectedPosition, defaultColor);
+    }
+
+    /**
+     * The tablet presentation is used when the smallest width of the
+     * screen is wide enough.
+     */
+    public static boolean isTabletMode(int smallestWidth, int tabletModeMinWidth) {
+        return smallestWidth >= tabletModeMinWidth;
+    }
+
+    /**
+     * Tabs are shifting when there's more than {@link #MAX_FIXED_TAB_COUNT}
+     * of them, or when they wouldn't fit in the available width as
+     * fixed tabs.
+     */
+    public static boolean isShiftingMode(int tabCount, int availableWidth, int minFixedItemWidth) {
+        return tabCount > 0 && (MAX_FIXED_TAB_COUNT < tabCount
+                || availableWidth / tabCount < minFixedItemWidth);
+    }
+
+    /**
+     * @return the width for each tab, which share the available width
+     * evenly, but never grow wider than the maximum.
+     */
+    public static int computeTabWidth(int availableWidth, int tabCount, int maxItemWidth) {
+        if (tabCount <= 0) {
+            return 0;
+        }
+
+        return Math.min(availableWidth / tabCount, maxItemWidth);
+    }
+
+    /**
+     * @return how many tabs fit in the strip, counting the "More" tab
+     * that the rest of them collapse into.
+     */
+    public static int getVisibleTabCount(int tabCount, int maxVisibleTabs) {
+        return maxVisibleTabs > 0 && tabCount > maxVisibleTabs ? maxVisibleTabs : tabCount;
+    }
+
+    /**
+     * @return the position of the first tab that doesn't fit in the strip,
+     * or {@link #NO_POSITION} if they all fit.
+     */
+    public static int getOverflowStart(int tabCount, int maxVisibleTabs) {
+        return maxVisibleTabs > 0 && tabCount > maxVisibleTabs ? maxVisibleTabs - 1 : NO_POSITION;
+    }
+
+    /**
+     * Mixes two ARGB colors, channel by channel.
+     *
+     * @param fraction how much of the second color there is, from 0 to 1.
+     */
+    public static int blendColors(int from, int to, float fraction) {
+        float inverse = 1 - fraction;
+
+        int a = (int) (((from >>> 24) & 0xFF) * inverse + ((to >>> 24) & 0xFF) * fraction + 0.5f);
+        int r = (int) (((from >> 16) & 0xFF) * inverse + ((to >> 16) & 0xFF) * fraction + 0.5f);
+        int g = (int) (((from >> 8) & 0xFF) * inverse + ((to >> 8) & 0xFF) * fraction + 0.5f);
+        int b = (int) ((from & 0xFF) * inverse + (to & 0xFF) * fraction + 0.5f);
+
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
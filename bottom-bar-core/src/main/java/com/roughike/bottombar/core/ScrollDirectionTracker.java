@@ -0,0 +1,182 @@
+package com.roughike.bottombar.core;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Works out the scroll direction from the scroll deltas. The
+ * accumulated distance resets each time the direction changes.
+ * <p/>
+ * A change of direction is only committed once the scroll has moved
+ * the distance threshold the other way, so a finger jittering near a
+ * turn doesn't flip the direction back and forth. Likewise, flings
+ * slower than the velocity threshold don't change the direction.
+ * <p/>
+ * Doesn't depend on Android and doesn't allocate, so it's cheap to
+ * feed every scroll event to it.
+ */
+public class ScrollDirectionTracker {
+    public static final int DIRECTION_UP = 1;
+    public static final int DIRECTION_DOWN = -1;
+    public static final int DIRECTION_NONE = 0;
+
+    private int mDistanceThreshold;
+    private float mVelocityThreshold;
+
+    private int mTotalDy;
+    private int mPendingDy;
+    private int mDirection = DIRECTION_NONE;
+
+    private int mTotalDyUnconsumed;
+    private int mOverScrollDirection = DIRECTION_NONE;
+
+    /**
+     * @param distanceThreshold how far the scroll has to move against the
+     *                          current direction before it changes.
+     * @param velocityThreshold how fast a fling has to be to change the direction.
+     */
+    public void setThresholds(int distanceThreshold, float velocityThreshold) {
+        if (distanceThreshold < 0 || velocityThreshold < 0) {
+            throw new IllegalArgumentException("The thresholds can't be negative.");
+        }
+
+        mDistanceThreshold = distanceThreshold;
+        mVelocityThreshold = velocityThreshold;
+    }
+
+    public int getDistanceThreshold() {
+        return mDistanceThreshold;
+    }
+
+    public float getVelocityThreshold() {
+        return mVelocityThreshold;
+    }
+
+    /**
+     * Feeds a scroll delta, where a positive value means the content
+     * moves up, as in the finger moving up.
+     *
+     * @return the current scroll direction.
+     */
+    public int onScroll(int dy) {
+        if (dy == 0) {
+            return mDirection;
+        }
+
+        int direction = dy > 0 ? DIRECTION_UP : DIRECTION_DOWN;
+
+        if (direction == mDirection) {
+            mTotalDy += dy;
+            mPendingDy = 0;
+            return mDirection;
+        }
+
+        // Moving against the current direction, which only counts once
+        // it's gone far enough. Jitter back the other way starts over.
+        if (mPendingDy != 0 && (mPendingDy > 0) != (dy > 0)) {
+            mPendingDy = 0;
+        }
+
+        mPendingDy += dy;
+
+        if (Math.abs(mPendingDy) > mDistanceThreshold) {
+            mDirection = direction;
+            mTotalDy = mPendingDy;
+            mPendingDy = 0;
+        }
+
+        return mDirection;
+    }
+
+    /**
+     * @return true if the scroll has moved against the current direction,
+     * but not far enough to change it yet.
+     */
+    public boolean isDirectionPending() {
+        return mPendingDy != 0;
+    }
+
+    /**
+     * Feeds the part of a scroll delta that the content couldn't consume.
+     *
+     * @return the current overscroll direction.
+     */
+    public int onOverScroll(int dyUnconsumed) {
+        if (dyUnconsumed > 0 && mTotalDyUnconsumed < 0) {
+            mTotalDyUnconsumed = 0;
+            mOverScrollDirection = DIRECTION_UP;
+        } else if (dyUnconsumed < 0 && mTotalDyUnconsumed > 0) {
+            mTotalDyUnconsumed = 0;
+            mOverScrollDirection = DIRECTION_DOWN;
+        }
+
+        mTotalDyUnconsumed += dyUnconsumed;
+        return mOverScrollDirection;
+    }
+
+    /**
+     * A fling decides the direction, unless it's slower than the
+     * velocity threshold.
+     *
+     * @return the new scroll direction.
+     */
+    public int onFling(float velocityY) {
+        if (Math.abs(velocityY) < mVelocityThreshold || velocityY == 0) {
+            return mDirection;
+        }
+
+        int direction = velocityY > 0 ? DIRECTION_UP : DIRECTION_DOWN;
+
+        if (direction != mDirection) {
+            mDirection = direction;
+            mTotalDy = 0;
+        }
+
+        mPendingDy = 0;
+        return mDirection;
+    }
+
+    public int getDirection() {
+        return mDirection;
+    }
+
+    public int getOverScrollDirection() {
+        return mOverScrollDirection;
+    }
+
+    /**
+     * @return the distance scrolled in the current direction.
+     */
+    public int getTotalDy() {
+        return mTotalDy;
+    }
+
+    /**
+     * @return the overscrolled distance in the current overscroll direction.
+     */
+    public int getTotalDyUnconsumed() {
+        return mTotalDyUnconsumed;
+    }
+
+    public void reset() {
+        mTotalDy = 0;
+        mPendingDy = 0;
+        mDirection = DIRECTION_NONE;
+        mTotalDyUnconsumed = 0;
+        mOverScrollDirection = DIRECTION_NONE;
+    }
+}
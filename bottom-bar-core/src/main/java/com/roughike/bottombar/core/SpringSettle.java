@@ -0,0 +1,145 @@
+package com.roughike.bottombar.core;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A critically damped spring that carries a position to its target,
+ * starting with the velocity it already had. Used for settling things
+ * that were dragged, so they keep moving the way the finger left them
+ * instead of starting a new animation from a standstill.
+ * <p/>
+ * Positions are in pixels and velocities in pixels per second. The
+ * position is kept between the given bounds, so a fast start doesn't
+ * overshoot past them.
+ */
+public class SpringSettle {
+    // How far the velocity projects the position when choosing the target.
+    private static final float PROJECTION_SECONDS = 0.1f;
+
+    // Longer steps are split, so the integration stays stable.
+    private static final float MAX_STEP_SECONDS = 0.004f;
+
+    private static final float REST_DISTANCE = 0.5f;
+    private static final float REST_VELOCITY = 10f;
+
+    private final float mStiffness;
+    private final float mDamping;
+
+    private float mPosition;
+    private float mVelocity;
+    private float mTarget;
+    private float mMin;
+    private float mMax;
+    private boolean mIsRunning;
+
+    /**
+     * @param stiffness how strongly the spring pulls towards the target.
+     *                  Higher values settle faster.
+     */
+    public SpringSettle(float stiffness) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("Stiffness has to be more than zero.");
+        }
+
+        mStiffness = stiffness;
+        mDamping = 2 * (float) Math.sqrt(stiffness);
+    }
+
+    /**
+     * Picks whichever of the two targets is closer to where the position
+     * is heading, judging by its velocity.
+     */
+    public static float chooseTarget(float position, float velocity, float first, float second) {
+        float projected = position + velocity * PROJECTION_SECONDS;
+        return Math.abs(projected - first) <= Math.abs(projected - second) ? first : second;
+    }
+
+    /**
+     * Starts settling towards the target.
+     *
+     * @param min the smallest position allowed on the way.
+     * @param max the largest position allowed on the way.
+     */
+    public void start(float position, float velocity, float target, float min, float max) {
+        mPosition = position;
+        mVelocity = velocity;
+        mTarget = target;
+        mMin = min;
+        mMax = max;
+        mIsRunning = true;
+    }
+
+    /**
+     * Advances the spring by the given time.
+     *
+     * @return true if it's still moving, false once it has come to rest
+     * at the target.
+     */
+    public boolean step(float seconds) {
+        if (!mIsRunning) {
+            return false;
+        }
+
+        while (seconds > 0) {
+            float step = Math.min(seconds, MAX_STEP_SECONDS);
+            float acceleration = -mStiffness * (mPosition - mTarget) - mDamping * mVelocity;
+
+            mVelocity += acceleration * step;
+            mPosition += mVelocity * step;
+
+            if (mPosition < mMin) {
+                mPosition = mMin;
+                mVelocity = Math.max(0, mVelocity);
+            } else if (mPosition > mMax) {
+                mPosition = mMax;
+                mVelocity = Math.min(0, mVelocity);
+            }
+
+            seconds -= step;
+        }
+
+        if (Math.abs(mPosition - mTarget) < REST_DISTANCE && Math.abs(mVelocity) < REST_VELOCITY) {
+            mPosition = mTarget;
+            mVelocity = 0;
+            mIsRunning = false;
+        }
+
+        return mIsRunning;
+    }
+
+    public void cancel() {
+        mIsRunning = false;
+        mVelocity = 0;
+    }
+
+    public boolean isRunning() {
+        return mIsRunning;
+    }
+
+    public float getPosition() {
+        return mPosition;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    public float getTarget() {
+        return mTarget;
+    }
+}
@@ -0,0 +1,148 @@
+package com.roughike.bottombar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public class BottomBarModelTest {
+    @Test
+    public void selectReturnsThePreviousPosition() {
+        BottomBarModel model = new BottomBarModel();
+        model.setTabCount(3);
+
+        assertEquals(0, model.select(2));
+        assertEquals(2, model.getSelectedPosition());
+    }
+
+    @Test
+    public void selectingTheSelectedPositionReturnsNoPosition() {
+        BottomBarModel model = new BottomBarModel();
+        model.setTabCount(3);
+
+        assertEquals(BottomBarModel.NO_POSITION, model.select(0));
+        assertEquals(0, model.getSelectedPosition());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void selectingPastTheTabsThrows() {
+        BottomBarModel model = new BottomBarModel();
+        model.setTabCount(3);
+        model.select(3);
+    }
+
+    @Test
+    public void fewerTabsResetAnInvalidSelection() {
+        BottomBarModel model = new BottomBarModel();
+        model.setTabCount(5);
+        model.select(4);
+
+        model.setTabCount(3);
+        assertEquals(0, model.getSelectedPosition());
+    }
+
+    @Test
+    public void restoredPositionIsKeptUntilTheTabsAreSet() {
+        BottomBarModel model = new BottomBarModel();
+        model.restoreSelectedPosition(2);
+        model.setTabCount(3);
+
+        assertEquals(2, model.getSelectedPosition());
+    }
+
+    @Test
+    public void mappedColorsFallBackToTheDefault() {
+        BottomBarModel model = new BottomBarModel();
+        model.mapColor(1, 0xFF00FF00);
+
+        assertFalse(model.hasMappedColor(0));
+        assertTrue(model.hasMappedColor(1));
+        assertFalse(model.hasMappedColor(20));
+        assertEquals(0xFF000000, model.getBackgroundColor(0, 0xFF000000));
+        assertEquals(0xFF00FF00, model.getBackgroundColor(1, 0xFF000000));
+    }
+
+    @Test
+    public void mappedColorsSurviveNewTabsAndCopies() {
+        BottomBarModel model = new BottomBarModel();
+        model.setTabCount(5);
+        model.mapColor(4, 0xFF0000FF);
+        model.select(4);
+        model.setTabCount(3);
+
+        BottomBarModel copy = new BottomBarModel(model);
+        copy.setTabCount(5);
+
+        assertEquals(0xFF0000FF, model.getBackgroundColor(4, 0));
+        assertEquals(0xFF0000FF, copy.getBackgroundColor(4, 0));
+        assertEquals(0, copy.getSelectedPosition());
+    }
+
+    @Test
+    public void selectedBackgroundColorFollowsTheSelection() {
+        BottomBarModel model = new BottomBarModel();
+        model.setTabCount(3);
+        model.mapColor(2, 0xFFFF0000);
+
+        assertEquals(0xFF000000, model.getSelectedBackgroundColor(0xFF000000));
+        model.select(2);
+        assertEquals(0xFFFF0000, model.getSelectedBackgroundColor(0xFF000000));
+    }
+
+    @Test
+    public void tabWidthIsSharedButCapped() {
+        assertEquals(120, BottomBarModel.computeTabWidth(360, 3, 168));
+        assertEquals(168, BottomBarModel.computeTabWidth(1000, 3, 168));
+        assertEquals(0, BottomBarModel.computeTabWidth(360, 0, 168));
+    }
+
+    @Test
+    public void shiftingWithManyTabsOrLittleRoom() {
+        assertFalse(BottomBarModel.isShiftingMode(3, 360, 80));
+        assertTrue(BottomBarModel.isShiftingMode(4, 1000, 80));
+        assertTrue(BottomBarModel.isShiftingMode(3, 200, 80));
+        assertFalse(BottomBarModel.isShiftingMode(0, 360, 80));
+    }
+
+    @Test
+    public void tabletModeFromTheSmallestWidth() {
+        assertTrue(BottomBarModel.isTabletMode(600, 600));
+        assertFalse(BottomBarModel.isTabletMode(599, 600));
+    }
+
+    @Test
+    public void overflowOnlyPastTheLimit() {
+        assertEquals(BottomBarModel.NO_POSITION, BottomBarModel.getOverflowStart(5, 0));
+        assertEquals(BottomBarModel.NO_POSITION, BottomBarModel.getOverflowStart(5, 5));
+        assertEquals(4, BottomBarModel.getOverflowStart(8, 5));
+
+        assertEquals(8, BottomBarModel.getVisibleTabCount(8, 0));
+        assertEquals(5, BottomBarModel.getVisibleTabCount(8, 5));
+        assertEquals(3, BottomBarModel.getVisibleTabCount(3, 5));
+    }
+
+    @Test
+    public void blendingGoesChannelByChannel() {
+        assertEquals(0xFF000000, BottomBarModel.blendColors(0xFF000000, 0x00FFFFFF, 0));
+        assertEquals(0x00FFFFFF, BottomBarModel.blendColors(0xFF000000, 0x00FFFFFF, 1));
+        assertEquals(0x80808080, BottomBarModel.blendColors(0xFF000000, 0x00FFFFFF, 0.5f));
+        assertEquals(0xFF804020, BottomBarModel.blendColors(0xFF804020, 0xFF804020, 0.3f));
+    }
+}
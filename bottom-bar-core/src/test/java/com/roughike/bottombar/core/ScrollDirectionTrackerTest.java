@@ -0,0 +1,119 @@
+package com.roughike.bottombar.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public class ScrollDirectionTrackerTest {
+    private ScrollDirectionTracker mTracker;
+
+    @Before
+    public void setUp() {
+        mTracker = new ScrollDirectionTracker();
+        mTracker.setThresholds(10, 500);
+    }
+
+    @Test
+    public void startsWithoutADirection() {
+        assertEquals(ScrollDirectionTracker.DIRECTION_NONE, mTracker.getDirection());
+        assertEquals(ScrollDirectionTracker.DIRECTION_NONE, mTracker.onScroll(0));
+    }
+
+    @Test
+    public void directionChangesOncePastTheThreshold() {
+        assertEquals(ScrollDirectionTracker.DIRECTION_NONE, mTracker.onScroll(6));
+        assertTrue(mTracker.isDirectionPending());
+        assertEquals(ScrollDirectionTracker.DIRECTION_UP, mTracker.onScroll(6));
+        assertFalse(mTracker.isDirectionPending());
+        assertEquals(12, mTracker.getTotalDy());
+    }
+
+    @Test
+    public void jitterNearATurnDoesNotFlipTheDirection() {
+        mTracker.onScroll(20);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(ScrollDirectionTracker.DIRECTION_UP, mTracker.onScroll(-8));
+            assertEquals(ScrollDirectionTracker.DIRECTION_UP, mTracker.onScroll(8));
+        }
+
+        assertEquals(ScrollDirectionTracker.DIRECTION_DOWN, mTracker.onScroll(-11));
+        assertEquals(-11, mTracker.getTotalDy());
+    }
+
+    @Test
+    public void scrollingOnCancelsThePendingTurn() {
+        mTracker.onScroll(20);
+        mTracker.onScroll(-8);
+        mTracker.onScroll(5);
+
+        assertFalse(mTracker.isDirectionPending());
+        assertEquals(ScrollDirectionTracker.DIRECTION_UP, mTracker.onScroll(-8));
+    }
+
+    @Test
+    public void slowFlingsKeepTheDirection() {
+        mTracker.onScroll(20);
+
+        assertEquals(ScrollDirectionTracker.DIRECTION_UP, mTracker.onFling(-499));
+        assertEquals(ScrollDirectionTracker.DIRECTION_DOWN, mTracker.onFling(-500));
+        assertEquals(0, mTracker.getTotalDy());
+    }
+
+    @Test
+    public void fastFlingDropsThePendingTurn() {
+        mTracker.onScroll(20);
+        mTracker.onScroll(-5);
+        mTracker.onFling(1000);
+
+        assertFalse(mTracker.isDirectionPending());
+        assertEquals(ScrollDirectionTracker.DIRECTION_UP, mTracker.getDirection());
+    }
+
+    @Test
+    public void overScrollTracksItsOwnDirection() {
+        assertEquals(ScrollDirectionTracker.DIRECTION_NONE, mTracker.onOverScroll(5));
+        assertEquals(ScrollDirectionTracker.DIRECTION_DOWN, mTracker.onOverScroll(-10));
+        assertEquals(-10, mTracker.getTotalDyUnconsumed());
+        assertEquals(ScrollDirectionTracker.DIRECTION_UP, mTracker.onOverScroll(3));
+        assertEquals(3, mTracker.getTotalDyUnconsumed());
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        mTracker.onScroll(20);
+        mTracker.onOverScroll(5);
+        mTracker.onOverScroll(-10);
+        mTracker.reset();
+
+        assertEquals(ScrollDirectionTracker.DIRECTION_NONE, mTracker.getDirection());
+        assertEquals(ScrollDirectionTracker.DIRECTION_NONE, mTracker.getOverScrollDirection());
+        assertEquals(0, mTracker.getTotalDy());
+        assertEquals(0, mTracker.getTotalDyUnconsumed());
+        assertEquals(10, mTracker.getDistanceThreshold());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeThresholdsThrow() {
+        mTracker.setThresholds(-1, 0);
+    }
+}
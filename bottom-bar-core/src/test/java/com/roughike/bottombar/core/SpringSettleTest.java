@@ -0,0 +1,106 @@
+package com.roughike.bottombar.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public class SpringSettleTest {
+    private static final float STIFFNESS = 800f;
+    private static final float FRAME_SECONDS = 1 / 60f;
+
+    @Test
+    public void targetIsTheCloserEnd() {
+        assertEquals(0f, SpringSettle.chooseTarget(40, 0, 0, 100), 0);
+        assertEquals(100f, SpringSettle.chooseTarget(60, 0, 0, 100), 0);
+    }
+
+    @Test
+    public void velocityDecidesTheTarget() {
+        // Projected 0.1 seconds ahead: 40 + 200 * 0.1 = 60.
+        assertEquals(100f, SpringSettle.chooseTarget(40, 200, 0, 100), 0);
+        assertEquals(0f, SpringSettle.chooseTarget(60, -200, 0, 100), 0);
+    }
+
+    @Test
+    public void settlesAtTheTarget() {
+        SpringSettle settle = new SpringSettle(STIFFNESS);
+        settle.start(30, 0, 100, 0, 100);
+
+        int frames = runToRest(settle);
+
+        assertFalse(settle.isRunning());
+        assertEquals(100f, settle.getPosition(), 0);
+        assertEquals(0f, settle.getVelocity(), 0);
+        assertTrue("Took " + frames + " frames", frames < 60);
+    }
+
+    @Test
+    public void fastStartStaysWithinTheBounds() {
+        SpringSettle settle = new SpringSettle(STIFFNESS);
+        settle.start(90, 5000, 100, 0, 100);
+
+        while (settle.step(FRAME_SECONDS)) {
+            assertTrue(settle.getPosition() >= 0 && settle.getPosition() <= 100);
+        }
+
+        assertEquals(100f, settle.getPosition(), 0);
+    }
+
+    @Test
+    public void longStepsStayStable() {
+        SpringSettle settle = new SpringSettle(STIFFNESS);
+        settle.start(0, 0, 100, 0, 100);
+
+        settle.step(1);
+
+        assertFalse(settle.isRunning());
+        assertEquals(100f, settle.getPosition(), 0);
+    }
+
+    @Test
+    public void cancelStopsTheSpring() {
+        SpringSettle settle = new SpringSettle(STIFFNESS);
+        settle.start(0, 0, 100, 0, 100);
+        settle.step(FRAME_SECONDS);
+        settle.cancel();
+
+        float position = settle.getPosition();
+
+        assertFalse(settle.step(FRAME_SECONDS));
+        assertEquals(position, settle.getPosition(), 0);
+        assertEquals(0f, settle.getVelocity(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stiffnessHasToBePositive() {
+        new SpringSettle(0);
+    }
+
+    private static int runToRest(SpringSettle settle) {
+        int frames = 0;
+
+        while (settle.step(FRAME_SECONDS) && frames < 1000) {
+            frames++;
+        }
+
+        return frames;
+    }
+}
@@ -0,0 +1,97 @@
+package com.roughike.bottombar;
+
+import android.util.SparseIntArray;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Collects badge count updates from any thread. Only the latest count for
+ * each tab is kept, so a burst of updates ends up as a single redraw.
+ */
+class BadgeUpdateQueue {
+    private final Object mLock = new Object();
+
+    private SparseIntArray mPendingByPosition = new SparseIntArray();
+    private SparseIntArray mPendingById = new SparseIntArray();
+    private SparseIntArray mDrainedByPosition = new SparseIntArray();
+    private SparseIntArray mDrainedById = new SparseIntArray();
+    private boolean mScheduled;
+
+    /**
+     * @return true if the caller should schedule a drain.
+     */
+    boolean putByPosition(int position, int count) {
+        synchronized (mLock) {
+            mPendingByPosition.put(position, count);
+            return schedule();
+        }
+    }
+
+    /**
+     * @return true if the caller should schedule a drain.
+     */
+    boolean putById(int tabId, int count) {
+        synchronized (mLock) {
+            mPendingById.put(tabId, count);
+            return schedule();
+        }
+    }
+
+    private boolean schedule() {
+        if (mScheduled) {
+            return false;
+        }
+
+        mScheduled = true;
+        return true;
+    }
+
+    boolean isScheduled() {
+        synchronized (mLock) {
+            return mScheduled;
+        }
+    }
+
+    /**
+     * Swaps out the pending updates. The returned arrays are only valid
+     * until the next call, and must only be used from the main thread.
+     */
+    void drain() {
+        synchronized (mLock) {
+            SparseIntArray byPosition = mDrainedByPosition;
+            mDrainedByPosition = mPendingByPosition;
+            mPendingByPosition = byPosition;
+            mPendingByPosition.clear();
+
+            SparseIntArray byId = mDrainedById;
+            mDrainedById = mPendingById;
+            mPendingById = byId;
+            mPendingById.clear();
+
+            mScheduled = false;
+        }
+    }
+
+    SparseIntArray drainedByPosition() {
+        return mDrainedByPosition;
+    }
+
+    SparseIntArray drainedById() {
+        return mDrainedById;
+    }
+}
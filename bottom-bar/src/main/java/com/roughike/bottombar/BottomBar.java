@@ -1,29 +1,47 @@
 package com.roughike.bottombar;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.Configuration;
-import android.content.res.Resources;
+import android.content.res.TypedArray;
 import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.Bitmap;
 import android.graphics.Typeface;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.IdRes;
+import android.support.annotation.IntDef;
 import android.support.annotation.MenuRes;
 import android.support.annotation.StyleRes;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.view.OnApplyWindowInsetsListener;
 import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewPager;
+import android.support.v4.view.WindowInsetsCompat;
+import android.support.v4.widget.NestedScrollView;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.PopupMenu;
+import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
-import android.util.Log;
-import android.util.TypedValue;
-import android.view.Display;
+import android.util.SparseIntArray;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
@@ -32,9 +50,16 @@ import android.widget.RelativeLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.roughike.bottombar.core.BottomBarModel;
 import com.roughike.bottombar.scrollsweetness.BottomNavigationBehavior;
+import com.roughike.bottombar.scrollsweetness.ShyScrollListener;
+import com.roughike.bottombar.scrollsweetness.ShyTranslationController;
 
-import java.util.HashMap;
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /*
  * BottomBar library for Android
@@ -53,51 +78,118 @@ import java.util.HashMap;
  * limitations under the License.
  */
 public class BottomBar extends FrameLayout implements View.OnClickListener, View.OnLongClickListener {
-    private static final long ANIMATION_DURATION = 150;
-    private static final int MAX_FIXED_TAB_COUNT = 3;
+    static final long ANIMATION_DURATION = 150;
+
+    /**
+     * Deliver tab change events right away, in the same frame the
+     * tab animations start.
+     */
+    public static final int DELIVER_IMMEDIATELY = 0;
+
+    /**
+     * Deliver tab change events after the first frame of the tab
+     * animations has been drawn.
+     */
+    public static final int DELIVER_AFTER_FIRST_FRAME = 1;
+
+    /**
+     * Deliver tab change events after the selected tab and the background
+     * have finished animating. If another tab is selected before that,
+     * the events are delivered right away, as the transition was cut short.
+     */
+    public static final int DELIVER_AFTER_TRANSITION = 2;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({DELIVER_IMMEDIATELY, DELIVER_AFTER_FIRST_FRAME, DELIVER_AFTER_TRANSITION})
+    public @interface Delivery {
+    }
+    private static final int MAX_FIXED_TAB_COUNT = BottomBarModel.MAX_FIXED_TAB_COUNT;
 
     private static final String STATE_CURRENT_SELECTED_TAB = "STATE_CURRENT_SELECTED_TAB";
     private static final String TAG_BOTTOM_BAR_VIEW_INACTIVE = "BOTTOM_BAR_VIEW_INACTIVE";
     private static final String TAG_BOTTOM_BAR_VIEW_ACTIVE = "BOTTOM_BAR_VIEW_ACTIVE";
 
+    // Ids for BottomBars that don't have one, so their state gets saved.
+    private static final int[] DEFAULT_IDS = {
+            R.id.bb_bottom_bar, R.id.bb_bottom_bar_2, R.id.bb_bottom_bar_3, R.id.bb_bottom_bar_4
+    };
+
     private Context mContext;
+    private BottomBarStateHolder mStateHolder;
     private boolean mIgnoreTabletLayout;
+    private boolean mIgnoreShiftingMode;
+    private boolean mIsInflatedFromXml;
+    private int mPendingMenuResource;
     private boolean mIsTabletMode;
     private boolean mIsShy;
-    private boolean mShyHeightAlreadyCalculated;
     private boolean mUseExtraOffset;
-
+    private BottomNavigationBehavior<BottomBar> mShyBehavior;
+    private boolean mShyFollowsScroll;
+
+    // Hiding on scroll without a CoordinatorLayout
+    private ShyScrollListener mShyScrollListener;
+    private ShyTranslationController mShyController;
+    private final ArrayList<View> mShyDependentViews = new ArrayList<>();
+
+    private View mRootView;
+    // Both hierarchies are kept once inflated, so a change of the
+    // presentation only has to swap them.
+    private View mPhoneRootView;
+    private View mTabletRootView;
     private ViewGroup mUserContentContainer;
+    private View mUserContentView;
     private View mOuterContainer;
     private ViewGroup mItemContainer;
 
+    // The tablet rail, which only has Views for the tabs on screen.
+    private RecyclerView mTabRail;
+    private TabRailAdapter mTabRailAdapter;
+
+    // Tabs past the limit collapse into a "More" tab on phones.
+    private int mMaxVisibleTabs;
+    private int mOverflowStart = BottomBarModel.NO_POSITION;
+    private View mMoreTab;
+    private PopupMenu mOverflowPopup;
+
+    // The phone tabs of the other one of the fixed and shifting
+    // presentations, kept for switching back to it.
+    private final ArrayList<View> mSpareTabs = new ArrayList<>();
+    private boolean mPhoneTabsShifting;
+
     private View mBackgroundView;
     private View mBackgroundOverlay;
     private View mShadowView;
+    private boolean mHideShadow;
     private View mTabletRightBorder;
     private View mPendingUserContentView;
 
     private int mPrimaryColor;
     private int mInActiveColor;
     private int mDarkBackgroundColor;
+    private int mTabletRightBorderColor;
+    private int mTabletRightBorderDarkColor;
     private int mWhiteColor;
 
-    private int mScreenWidth;
     private int mTwoDp;
     private int mTenDp;
+    private int mIconSize;
+    private int mMinFixedItemWidth;
     private int mMaxFixedItemWidth;
+    private int mTabletModeMinWidth;
 
     private OnTabSelectedListener mListener;
     private OnMenuTabSelectedListener mMenuListener;
+    private final CopyOnWriteArrayList<TabChangeListenerRecord> mTabChangeListeners
+            = new CopyOnWriteArrayList<>();
 
-    private int mCurrentTabPosition;
+    // Selection and mapped colors
+    private BottomBarModel mModel = new BottomBarModel();
     private boolean mIsShiftingMode;
 
-    private Object mFragmentManager;
+    private FragmentHost<?> mFragmentHost;
     private int mFragmentContainer;
 
     private BottomBarItemBase[] mItems;
-    private HashMap<Integer, Integer> mColorMap;
 
     private int mCurrentBackgroundColor;
     private int mDefaultBackgroundColor;
@@ -109,34 +201,226 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
     private boolean mUseTopOffset = true;
     private boolean mUseOnlyStatusBarOffset;
 
-    private int mPendingTextAppearance = -1;
-    private Typeface mPendingTypeface;
+    // Navigation bar handling, driven by the window insets we receive
+    private boolean mIsDrawingBehindNavBar;
+    private int mActionBarSize;
+    private int mTopInset;
+    private int mNavBarInset;
+
+    // Swipeable content, which the selection follows
+    private ViewPager mViewPager;
+    private TabFragmentPagerAdapter mPagerAdapter;
+    private boolean mIsPageDragged;
+    private int mSwipePosition;
+    private float mSwipeOffset;
+    private boolean mIsPagerIdle = true;
+
+    private final ViewPager.OnPageChangeListener mPageChangeListener = new ViewPager.SimpleOnPageChangeListener() {
+        @Override
+        public void onPageScrollStateChanged(int state) {
+            if (state == ViewPager.SCROLL_STATE_DRAGGING) {
+                mIsPageDragged = true;
+            } else if (state == ViewPager.SCROLL_STATE_IDLE) {
+                mIsPageDragged = false;
+            }
+
+            mIsPagerIdle = state == ViewPager.SCROLL_STATE_IDLE;
+            updateOffscreenPages();
+        }
+
+        @Override
+        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+            // Clicked tabs animate by themselves, only swipes are tracked.
+            if (mIsPageDragged) {
+                trackSwipe(position, positionOffset);
+            }
+        }
+
+        @Override
+        public void onPageSelected(int position) {
+            if (mItems != null && position < mItems.length && position != mModel.getSelectedPosition()) {
+                onPageSwiped(position);
+            }
+
+            // Jumps without scrolling don't change the scroll state.
+            if (mIsPagerIdle) {
+                updateOffscreenPages();
+            }
+        }
+    };
+
+    // Keeping the Fragments of unselected tabs hidden, instead of replacing them
+    private static final String TAG_KEPT_FRAGMENT = "BOTTOM_BAR_KEPT_FRAGMENT_";
+    private boolean mKeepsHiddenFragments;
+    private boolean[] mAddedFragments;
+
+    private OnTabVisibilityChangeListener mVisibilityListener;
+    private int mVisibleTab = BottomBarModel.NO_POSITION;
+
+    // All the icons pre-drawn into one bitmap, if enabled
+    private boolean mUseIconAtlas;
+    private IconAtlas mIconAtlas;
+
+    private int mTextAppearance = -1;
+    private Typeface mTypeface;
+
+    // Measuring tab switches, only supported on Jelly Bean and up
+    private TabSwitchMetrics mTabSwitchMetrics;
+
+    // Recording tab switches for replaying them later
+    private TabSwitchRecorder mTabSwitchRecorder;
+    private boolean mIsTouchOnTabs;
+    private long mTabTouchUpTime;
+
+    // Async trace slices for tab switches
+    private static int sTabSwitchTraceCookie;
+    private int mTabSwitchTraceCookie;
+    private final Runnable mEndTabSwitchTrace = new Runnable() {
+        @Override
+        public void run() {
+            if (mTabSwitchTraceCookie != 0) {
+                BottomBarTrace.endAsyncSection(BottomBarTrace.TAB_SWITCH, mTabSwitchTraceCookie);
+                mTabSwitchTraceCookie = 0;
+            }
+        }
+    };
+
+    private final Runnable mPrepareForNavBarInsets = new Runnable() {
+        @Override
+        public void run() {
+            if (mContext instanceof Activity) {
+                prepareForNavBarInsets((Activity) mContext);
+            }
+        }
+    };
+
+    // Delivering tab changes once the selected tab and background have animated
+    private boolean mHasPendingTransitionDispatch;
+    private int mTransitionOldPosition;
+    private int mTransitionNewPosition;
+    private Animator mBackgroundAnimator;
+
+    private final Runnable mTransitionDispatch = new Runnable() {
+        @Override
+        public void run() {
+            if (!mHasPendingTransitionDispatch) {
+                return;
+            }
+
+            mHasPendingTransitionDispatch = false;
+
+            for (TabChangeListenerRecord record : mTabChangeListeners) {
+                if (record.delivery == DELIVER_AFTER_TRANSITION) {
+                    record.dispatch(mTransitionOldPosition, mTransitionNewPosition);
+                }
+            }
+        }
+    };
+
+    private final AnimatorListenerAdapter mTransitionListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (animation == mBackgroundAnimator) {
+                mBackgroundAnimator = null;
+            }
+
+            if (mHasPendingTransitionDispatch && !isTransitionRunning()) {
+                mTransitionDispatch.run();
+            }
+        }
+    };
+
+    // Badges, which can be updated from any thread
+    private static Handler sMainHandler;
+    private final BadgeUpdateQueue mBadgeUpdates = new BadgeUpdateQueue();
+    private int[] mBadgeCounts;
+
+    private final Runnable mScheduleBadgeUpdate = new Runnable() {
+        @Override
+        public void run() {
+            ViewCompat.postOnAnimation(BottomBar.this, mApplyBadgeUpdates);
+        }
+    };
+
+    private final Runnable mApplyBadgeUpdates = new Runnable() {
+        @Override
+        public void run() {
+            applyBadgeUpdates();
+        }
+    };
 
     // For fragment state restoration
     private boolean mIsComingFromRestoredState;
+    private boolean mHasRestoredFragments;
 
     /**
      * Bind the BottomBar to your Activity, and inflate your layout here.
      * <p/>
-     * Remember to also call {@link #onRestoreInstanceState(Bundle)} inside
-     * of your {@link Activity#onSaveInstanceState(Bundle)} to restore the state.
+     * The selected tab is saved and restored along with the rest of
+     * the View hierarchy.
      *
      * @param activity           an Activity to attach to.
      * @param savedInstanceState a Bundle for restoring the state on configuration change.
      * @return a BottomBar at the bottom of the screen.
      */
     public static BottomBar attach(Activity activity, Bundle savedInstanceState) {
-        BottomBar bottomBar = new BottomBar(activity);
-        bottomBar.onRestoreInstanceState(savedInstanceState);
+        return attach(new BottomBar(activity), activity, savedInstanceState);
+    }
+
+    /**
+     * Same as {@link #attach(Activity, Bundle)}, but the resolved resources,
+     * icons, colors and menu items are kept in a retained Fragment. After a
+     * configuration change, the BottomBar is rebuilt from those instead of
+     * resolving and loading everything again.
+     *
+     * @param activity           an Activity to attach to.
+     * @param savedInstanceState a Bundle for restoring the state on configuration change.
+     * @return a BottomBar at the bottom of the screen.
+     */
+    public static BottomBar attachRetained(Activity activity, Bundle savedInstanceState) {
+        BottomBar bottomBar = new BottomBar(activity, BottomBarStateHolder.getOrCreate(activity));
+        return attach(bottomBar, activity, savedInstanceState);
+    }
 
-        ViewGroup contentView = (ViewGroup) activity.findViewById(android.R.id.content);
-        View oldLayout = contentView.getChildAt(0);
-        contentView.removeView(oldLayout);
+    private static BottomBar attach(BottomBar bottomBar, Activity activity, Bundle savedInstanceState) {
+        BottomBarTrace.beginSection(BottomBarTrace.ATTACH);
 
-        bottomBar.setPendingUserContentView(oldLayout);
-        contentView.addView(bottomBar, 0);
+        try {
+            bottomBar.restoreState(savedInstanceState);
 
-        return bottomBar;
+            ViewGroup contentView = (ViewGroup) activity.findViewById(android.R.id.content);
+            bottomBar.pickDistinctId(contentView.getRootView());
+            View oldLayout = contentView.getChildAt(0);
+            contentView.removeView(oldLayout);
+
+            bottomBar.setPendingUserContentView(oldLayout);
+            contentView.addView(bottomBar, 0);
+
+            return bottomBar;
+        } finally {
+            BottomBarTrace.endSection();
+        }
+    }
+
+    /**
+     * Takes the first default id that isn't used yet in the hierarchy, so
+     * several attached BottomBars keep their own saved state. They are
+     * attached in the same order when the Activity is recreated, so each
+     * gets its id back. Generated ids wouldn't survive that.
+     */
+    private void pickDistinctId(View root) {
+        if (getId() != DEFAULT_IDS[0]) {
+            return;
+        }
+
+        for (int id : DEFAULT_IDS) {
+            View existing = root.findViewById(id);
+
+            if (existing == null || existing == this) {
+                setId(id);
+                return;
+            }
+        }
     }
 
     private void setPendingUserContentView(View oldLayout) {
@@ -148,30 +432,38 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
      * your layout there. Useful when the BottomBar overlaps some content
      * that shouldn't be overlapped.
      * <p/>
-     * Remember to also call {@link #onRestoreInstanceState(Bundle)} inside
-     * of your {@link Activity#onSaveInstanceState(Bundle)} to restore the state.
+     * The selected tab is saved and restored along with the rest of
+     * the View hierarchy.
      *
      * @param view               a View, which parent we're going to attach to.
      * @param savedInstanceState a Bundle for restoring the state on configuration change.
      * @return a BottomBar at the bottom of the screen.
      */
     public static BottomBar attach(View view, Bundle savedInstanceState) {
-        BottomBar bottomBar = new BottomBar(view.getContext());
-        bottomBar.onRestoreInstanceState(savedInstanceState);
+        BottomBarTrace.beginSection(BottomBarTrace.ATTACH);
 
-        ViewGroup contentView = (ViewGroup) view.getParent();
+        try {
+            BottomBar bottomBar = new BottomBar(view.getContext());
+            bottomBar.restoreState(savedInstanceState);
 
-        if (contentView != null) {
-            View oldLayout = contentView.getChildAt(0);
-            contentView.removeView(oldLayout);
+            ViewGroup contentView = (ViewGroup) view.getParent();
 
-            bottomBar.setPendingUserContentView(oldLayout);
-            contentView.addView(bottomBar, 0);
-        } else {
-            bottomBar.setPendingUserContentView(view);
-        }
+            bottomBar.pickDistinctId(view.getRootView());
 
-        return bottomBar;
+            if (contentView != null) {
+                View oldLayout = contentView.getChildAt(0);
+                contentView.removeView(oldLayout);
+
+                bottomBar.setPendingUserContentView(oldLayout);
+                contentView.addView(bottomBar, 0);
+            } else {
+                bottomBar.setPendingUserContentView(view);
+            }
+
+            return bottomBar;
+        } finally {
+            BottomBarTrace.endSection();
+        }
     }
 
     /**
@@ -187,8 +479,8 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
      * Adds the BottomBar inside of your CoordinatorLayout and shows / hides
      * it according to scroll state changes.
      * <p/>
-     * Remember to also call {@link #onRestoreInstanceState(Bundle)} inside
-     * of your {@link Activity#onSaveInstanceState(Bundle)} to restore the state.
+     * The selected tab is saved and restored along with the rest of
+     * the View hierarchy.
      *
      * @param coordinatorLayout  a CoordinatorLayout for the BottomBar to add itself into
      * @param userContentView    the view (usually a NestedScrollView) that has your scrolling content.
@@ -199,13 +491,14 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
     public static BottomBar attachShy(CoordinatorLayout coordinatorLayout, View userContentView, Bundle savedInstanceState) {
         final BottomBar bottomBar = new BottomBar(coordinatorLayout.getContext());
         bottomBar.toughChildHood(ViewCompat.getFitsSystemWindows(coordinatorLayout));
-        bottomBar.onRestoreInstanceState(savedInstanceState);
+        bottomBar.restoreState(savedInstanceState);
 
         if (userContentView != null && coordinatorLayout.getContext()
                 .getResources().getBoolean(R.bool.bb_bottom_bar_is_tablet_mode)) {
             bottomBar.setPendingUserContentView(userContentView);
         }
 
+        bottomBar.pickDistinctId(coordinatorLayout.getRootView());
         coordinatorLayout.addView(bottomBar);
         return bottomBar;
     }
@@ -238,7 +531,7 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
         }
 
         clearItems();
-        mFragmentManager = fragmentManager;
+        mFragmentHost = new FragmentHost.Platform(fragmentManager);
         mFragmentContainer = containerResource;
         mItems = fragmentItems;
         updateItems(mItems);
@@ -271,7 +564,7 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
             }
         }
         clearItems();
-        mFragmentManager = fragmentManager;
+        mFragmentHost = new FragmentHost.Support(fragmentManager);
         mFragmentContainer = containerResource;
         mItems = fragmentItems;
         updateItems(mItems);
@@ -298,11 +591,32 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
      */
     public void setItemsFromMenu(@MenuRes int menuRes, OnMenuTabSelectedListener listener) {
         clearItems();
-        mItems = MiscUtils.inflateMenuFromResource((Activity) getContext(), menuRes);
+
+        if (mStateHolder != null) {
+            mItems = mStateHolder.getMenuItems(menuRes);
+
+            if (mItems == null) {
+                mItems = MiscUtils.inflateMenuFromResource(getContext(), menuRes);
+                mStateHolder.retainMenuItems(menuRes, (BottomBarTab[]) mItems);
+            }
+        } else {
+            mItems = MiscUtils.inflateMenuFromResource(getContext(), menuRes);
+        }
+
         mMenuListener = listener;
         updateItems(mItems);
     }
 
+    /**
+     * Set a listener that gets fired when the selected tab changes.
+     * Use this when the items were set from the bb_menu XML attribute.
+     *
+     * @param listener listener for tab change events.
+     */
+    public void setOnMenuTabSelectedListener(OnMenuTabSelectedListener listener) {
+        mMenuListener = listener;
+    }
+
     /**
      * Set a listener that gets fired when the selected tab changes.
      *
@@ -312,6 +626,56 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
         mListener = listener;
     }
 
+    /**
+     * Set a listener that gets fired when the content of a tab is shown
+     * or hidden. If set before the items, it's also fired for the tab
+     * that's shown first.
+     *
+     * @param listener a listener for pausing the work of hidden tabs.
+     */
+    public void setOnTabVisibilityChangeListener(OnTabVisibilityChangeListener listener) {
+        mVisibilityListener = listener;
+    }
+
+    /**
+     * Add a listener that gets fired when tabs get selected, unselected
+     * or reselected. The events are delivered right away.
+     *
+     * @param listener a listener for monitoring changes in tab selection.
+     */
+    public void addOnTabChangeListener(OnTabChangeListener listener) {
+        addOnTabChangeListener(listener, DELIVER_IMMEDIATELY);
+    }
+
+    /**
+     * Add a listener that gets fired when tabs get selected, unselected
+     * or reselected. Delaying the delivery keeps heavier work in the
+     * listener from dropping frames of the tab animations.
+     * <p/>
+     * Listeners can be added and removed at any time, even while the
+     * events are being delivered.
+     *
+     * @param listener a listener for monitoring changes in tab selection.
+     * @param delivery when to deliver the events: {@link #DELIVER_IMMEDIATELY},
+     *                 {@link #DELIVER_AFTER_FIRST_FRAME} or {@link #DELIVER_AFTER_TRANSITION}.
+     */
+    public void addOnTabChangeListener(OnTabChangeListener listener, @Delivery int delivery) {
+        mTabChangeListeners.add(new TabChangeListenerRecord(listener, delivery));
+    }
+
+    /**
+     * Remove a listener previously added with {@link #addOnTabChangeListener(OnTabChangeListener)}.
+     *
+     * @param listener the listener to remove.
+     */
+    public void removeOnTabChangeListener(OnTabChangeListener listener) {
+        for (TabChangeListenerRecord record : mTabChangeListeners) {
+            if (record.listener == listener) {
+                mTabChangeListeners.remove(record);
+            }
+        }
+    }
+
     /**
      * Select a tab at the specified position.
      *
@@ -326,26 +690,35 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
                     position + ". This BottomBar has no items at that position.");
         }
 
-        unselectTab(mItemContainer.findViewWithTag(TAG_BOTTOM_BAR_VIEW_ACTIVE), animate);
-        selectTab(mItemContainer.getChildAt(position), animate);
+        if (mTabSwitchRecorder != null) {
+            mTabSwitchRecorder.onSelect(position, animate);
+        }
+
+        updateTabSelection(mModel.getSelectedPosition(), false, animate);
+        updateTabSelection(position, true, animate);
+
+        if (mTabRail != null) {
+            mTabRail.scrollToPosition(position);
+        }
 
         updateSelectedTab(position);
     }
 
     /**
-     * Call this method in your Activity's onSaveInstanceState
-     * to keep the BottomBar's state on configuration change.
+     * Saves the selected tab and the state of its Fragment into the
+     * Activity's state. Not needed for keeping the selected tab anymore,
+     * as the BottomBar saves that by itself.
      *
      * @param outState the Bundle to save data to.
      */
     public void onSaveInstanceState(Bundle outState) {
-        outState.putInt(STATE_CURRENT_SELECTED_TAB, mCurrentTabPosition);
+        outState.putInt(STATE_CURRENT_SELECTED_TAB, mModel.getSelectedPosition());
 
-        if (mFragmentManager != null
+        if (mFragmentHost != null
                 && mFragmentContainer != 0
                 && mItems != null
                 && mItems instanceof BottomBarFragment[]) {
-            BottomBarFragment bottomBarFragment = (BottomBarFragment) mItems[mCurrentTabPosition];
+            BottomBarFragment bottomBarFragment = (BottomBarFragment) mItems[mModel.getSelectedPosition()];
 
             if (bottomBarFragment.getFragment() != null) {
                 bottomBarFragment.getFragment().onSaveInstanceState(outState);
@@ -357,33 +730,14 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
 
     /**
      * Map a background color for a Tab, that changes the whole BottomBar
-     * background color when the Tab is selected.
+     * background color when the Tab is selected. The color can be mapped
+     * before the Tabs are set, and is kept when they change.
      *
      * @param tabPosition zero-based index for the tab.
      * @param color       a hex color for the tab, such as 0xFF00FF00.
      */
     public void mapColorForTab(int tabPosition, int color) {
-        if (mItems == null || mItems.length == 0) {
-            throw new UnsupportedOperationException("You have no BottomBar Tabs set yet. " +
-                    "Please set them first before calling the mapColorForTab method.");
-        } else if (tabPosition > mItems.length - 1 || tabPosition < 0) {
-            throw new IndexOutOfBoundsException("Cant map color for Tab " +
-                    "index " + tabPosition + ". You have no BottomBar Tabs at that position.");
-        }
-
-        if (!mIsShiftingMode || mIsTabletMode) return;
-
-        if (mColorMap == null) {
-            mColorMap = new HashMap<>();
-        }
-
-        if (tabPosition == mCurrentTabPosition
-                && mCurrentBackgroundColor != color) {
-            mCurrentBackgroundColor = color;
-            mBackgroundView.setBackgroundColor(color);
-        }
-
-        mColorMap.put(tabPosition, color);
+        edit().mapColorForTab(tabPosition, color).apply();
     }
 
     /**
@@ -407,24 +761,7 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
      * @param darkThemeEnabled whether the dark the should be enabled or not.
      */
     public void useDarkTheme(boolean darkThemeEnabled) {
-        if (!mIsDarkTheme && darkThemeEnabled
-                && mItems != null && mItems.length > 0) {
-            darkThemeMagic();
-
-            for (int i = 0; i < mItemContainer.getChildCount(); i++) {
-                View bottomBarTab = mItemContainer.getChildAt(i);
-                ((ImageView) bottomBarTab.findViewById(R.id.bb_bottom_bar_icon))
-                        .setColorFilter(mWhiteColor);
-
-                if (i == mCurrentTabPosition) {
-                    selectTab(bottomBarTab, false);
-                } else {
-                    unselectTab(bottomBarTab, false);
-                }
-            }
-        }
-
-        mIsDarkTheme = darkThemeEnabled;
+        edit().useDarkTheme(darkThemeEnabled).apply();
     }
 
     /**
@@ -449,7 +786,7 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
      * @param activeTabColor a hex color used for active tabs, such as 0xFF00FF00.
      */
     public void setActiveTabColor(int activeTabColor) {
-        mCustomActiveTabColor = activeTabColor;
+        edit().setActiveTabColor(activeTabColor).apply();
     }
 
     /**
@@ -459,18 +796,7 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
      * @param typeFacePath path for the custom typeface in the assets directory.
      */
     public void setTypeFace(String typeFacePath) {
-        Typeface typeface = Typeface.createFromAsset(mContext.getAssets(),
-                typeFacePath);
-
-        if (mItemContainer != null && mItemContainer.getChildCount() > 0) {
-            for (int i = 0; i < mItemContainer.getChildCount(); i++) {
-                View bottomBarTab = mItemContainer.getChildAt(i);
-                TextView title = (TextView) bottomBarTab.findViewById(R.id.bb_bottom_bar_title);
-                title.setTypeface(typeface);
-            }
-        } else {
-            mPendingTypeface = typeface;
-        }
+        edit().setTypeFace(typeFacePath).apply();
     }
 
     /**
@@ -479,681 +805,2644 @@ public class BottomBar extends FrameLayout implements View.OnClickListener, View
      * @param resId path to the custom text appearance.
      */
     public void setTextAppearance(@StyleRes int resId) {
-        if (mItemContainer != null && mItemContainer.getChildCount() > 0) {
-            for (int i = 0; i < mItemContainer.getChildCount(); i++) {
-                View bottomBarTab = mItemContainer.getChildAt(i);
-                TextView title = (TextView) bottomBarTab.findViewById(R.id.bb_bottom_bar_title);
-                MiscUtils.setTextAppearance(title, resId);
-            }
-        } else {
-            mPendingTextAppearance = resId;
-        }
+        edit().setTextAppearance(resId).apply();
     }
 
     /**
-     * Hide the shadow that's normally above the BottomBar.
+     * Start changing the styling of the BottomBar. The changes are
+     * applied together when calling {@link BottomBarEditor#apply()},
+     * restyling the tabs only once:
+     * <pre>
+     * mBottomBar.edit()
+     *         .useDarkTheme(true)
+     *         .setActiveTabColor("#009688")
+     *         .setTypeFace("MyFont.ttf")
+     *         .apply();
+     * </pre>
+     *
+     * @return an editor for the styling of this BottomBar.
      */
-    public void hideShadow() {
-        if (mShadowView != null) {
-            mShadowView.setVisibility(GONE);
-        }
+    public BottomBarEditor edit() {
+        return new BottomBarEditor(this);
     }
 
     /**
-     * Prevent the BottomBar drawing behind the Navigation Bar and making
-     * it transparent. Must be called before setting items.
+     * Show a badge with the specified count on the Tab at the specified position.
+     * Safe to call from any thread. Updates are coalesced, so that the BottomBar
+     * redraws at most once per frame no matter how often this is called.
+     *
+     * @param position zero-based index for the tab.
+     * @param count    the count to show, or zero to hide the badge.
      */
-    public void noNavBarGoodness() {
-        if (mItems != null) {
-            throw new UnsupportedOperationException("This BottomBar already has items! " +
-                    "You must call noNavBarGoodness() before setting the items, preferably " +
-                    "right after attaching it to your layout.");
+    public void setBadgeCount(int position, int count) {
+        if (mBadgeUpdates.putByPosition(position, count)) {
+            scheduleBadgeUpdate();
         }
-
-        mDrawBehindNavBar = false;
     }
 
     /**
-     * Force the BottomBar to behave exactly same on tablets and phones,
-     * instead of showing a left menu on tablets.
+     * Show a badge with the specified count on the Tab with the specified id,
+     * such as one assigned in the menu xml resource file. Safe to call from any
+     * thread. Updates are coalesced, so that the BottomBar redraws at most once
+     * per frame no matter how often this is called.
+     *
+     * @param tabId the id of the {@link BottomBarTab}.
+     * @param count the count to show, or zero to hide the badge.
      */
-    public void noTabletGoodness() {
-        if (mItems != null) {
-            throw new UnsupportedOperationException("This BottomBar already has items! " +
-                    "You must call noTabletGoodness() before setting the items, preferably " +
-                    "right after attaching it to your layout.");
+    public void setBadgeCountForTabId(@IdRes int tabId, int count) {
+        if (mBadgeUpdates.putById(tabId, count)) {
+            scheduleBadgeUpdate();
         }
-
-        mIgnoreTabletLayout = true;
     }
 
     /**
-     * Super ugly hacks
-     * ----------------------------/
+     * Turn on or off the systrace sections around the work BottomBar
+     * does, such as inflating the tabs, selecting them and replacing
+     * the Fragments. A whole tab switch, until the new content has been
+     * drawn, also shows up as an async slice. Off by default.
+     *
+     * @param enabled whether the trace sections should be emitted.
      */
+    public static void setTracingEnabled(boolean enabled) {
+        BottomBarTrace.setEnabled(enabled);
+    }
 
     /**
-     * If you get some unwanted extra padding in the top (such as
-     * when using CoordinatorLayout), this fixes it.
+     * Start or stop measuring how long the tab switches take. The results
+     * are available from {@link #dump(String, PrintWriter)}. Requires
+     * Jelly Bean or newer, does nothing on older versions.
+     *
+     * @param enabled whether the tab switches should be measured.
      */
-    public void noTopOffset() {
-        mUseTopOffset = false;
+    public void setTabSwitchMetricsEnabled(boolean enabled) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+                || enabled == (mTabSwitchMetrics != null)) {
+            return;
+        }
+
+        if (enabled) {
+            WindowManager windowManager = (WindowManager) getContext()
+                    .getSystemService(Context.WINDOW_SERVICE);
+            mTabSwitchMetrics = new TabSwitchMetrics(
+                    windowManager.getDefaultDisplay().getRefreshRate(), ANIMATION_DURATION);
+
+            if (ViewCompat.isAttachedToWindow(this)) {
+                getViewTreeObserver().addOnDrawListener(mTabSwitchMetrics);
+            }
+        } else {
+            mTabSwitchMetrics.cancel();
+
+            if (ViewCompat.isAttachedToWindow(this)) {
+                getViewTreeObserver().removeOnDrawListener(mTabSwitchMetrics);
+            }
+
+            mTabSwitchMetrics = null;
+        }
     }
 
     /**
-     * If your ActionBar gets inside the status bar for some reason,
-     * this fixes it.
+     * Set a listener that gets the measurements of each tab switch,
+     * from the touch to the first frame drawn with the new content.
+     * Also enables measuring the tab switches. Requires Jelly Bean or
+     * newer, the listener is never called on older versions.
+     *
+     * @param listener a listener for the tab switch measurements.
      */
-    public void useOnlyStatusBarTopOffset() {
-        mUseOnlyStatusBarOffset = true;
+    public void setOnTabSwitchMetricsListener(OnTabSwitchMetricsListener listener) {
+        setTabSwitchMetricsEnabled(true);
+
+        if (mTabSwitchMetrics != null) {
+            mTabSwitchMetrics.setListener(listener);
+        }
     }
 
     /**
-     * ------------------------------------------- //
+     * Record the touches and tab switches of this BottomBar, for replaying
+     * them later with a {@link TabSwitchReplayer}. Pass null to stop
+     * recording.
+     *
+     * @param recorder the recorder to record into, or null.
      */
-    public BottomBar(Context context) {
-        super(context);
-        init(context, null, 0, 0);
+    public void setTabSwitchRecorder(TabSwitchRecorder recorder) {
+        mTabSwitchRecorder = recorder;
     }
 
-    public BottomBar(Context context, AttributeSet attrs) {
-        super(context, attrs);
-        init(context, attrs, 0, 0);
+    TabSwitchRecorder getTabSwitchRecorder() {
+        return mTabSwitchRecorder;
     }
 
-    public BottomBar(Context context, AttributeSet attrs, int defStyleAttr) {
-        super(context, attrs, defStyleAttr);
-        init(context, attrs, defStyleAttr, 0);
+    boolean isTabSwitchMetricsEnabled() {
+        return mTabSwitchMetrics != null;
     }
 
-    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
-    public BottomBar(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
-        super(context, attrs, defStyleAttr, defStyleRes);
-        init(context, attrs, defStyleAttr, defStyleRes);
+    OnTabSwitchMetricsListener getOnTabSwitchMetricsListener() {
+        return mTabSwitchMetrics != null ? mTabSwitchMetrics.getListener() : null;
     }
 
-    private void init(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
-        mContext = context;
-
-        mDarkBackgroundColor = ContextCompat.getColor(getContext(), R.color.bb_darkBackgroundColor);
-        mWhiteColor = ContextCompat.getColor(getContext(), R.color.white);
-        mPrimaryColor = MiscUtils.getColor(getContext(), R.attr.colorPrimary);
-        mInActiveColor = ContextCompat.getColor(getContext(), R.color.bb_inActiveBottomBarItemColor);
+    /**
+     * Print the state of this BottomBar and, if enabled, the p50 and p95
+     * latencies of the recent tab switches. Meant to be called from your
+     * {@link Activity#dump(String, java.io.FileDescriptor, PrintWriter, String[])}.
+     *
+     * @param prefix a prefix for each line.
+     * @param writer the writer to print to.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        int tabCount = mItems != null ? mItems.length : 0;
+
+        writer.print(prefix);
+        writer.println("BottomBar: tabs=" + tabCount
+                + " selected=" + mModel.getSelectedPosition()
+                + " shifting=" + mIsShiftingMode
+                + " tablet=" + mIsTabletMode
+                + " shy=" + mIsShy);
+
+        if (mTabSwitchMetrics != null) {
+            mTabSwitchMetrics.dump(prefix + "  ", writer, tabCount);
+        }
+    }
 
-        mScreenWidth = MiscUtils.getScreenWidth(mContext);
-        mTwoDp = MiscUtils.dpToPixel(mContext, 2);
-        mTenDp = MiscUtils.dpToPixel(mContext, 10);
-        mMaxFixedItemWidth = MiscUtils.dpToPixel(mContext, 168);
+    /**
+     * Set how far the content has to scroll, or how fast it has to be
+     * flung, before a shy BottomBar shows or hides. Small movements the
+     * other way don't count, so the BottomBar doesn't jump around when
+     * the finger jitters. Defaults to the touch slop and the minimum fling
+     * velocity.
+     *
+     * @param distanceThreshold the distance in pixels.
+     * @param velocityThreshold the fling velocity in pixels per second.
+     */
+    public void setShyScrollThresholds(int distanceThreshold, float velocityThreshold) {
+        if (mShyBehavior != null) {
+            mShyBehavior.setScrollThresholds(distanceThreshold, velocityThreshold);
+        } else if (mShyScrollListener != null) {
+            mShyScrollListener.setScrollThresholds(distanceThreshold, velocityThreshold);
+        } else {
+            throw new IllegalStateException("This BottomBar isn't shy. Use attachShy(), " +
+                    "bb_shy or hideOnScroll() to make it hide on scroll.");
+        }
     }
 
-    private void initializeViews() {
-        mIsTabletMode = !mIgnoreTabletLayout &&
-                mContext.getResources().getBoolean(R.bool.bb_bottom_bar_is_tablet_mode);
+    /**
+     * Make a shy BottomBar move together with the scrolled content, instead
+     * of animating in or out once the scroll direction changes. When the
+     * scroll stops or the content is flung, it settles to shown or hidden,
+     * whichever is closer.
+     *
+     * @param followsScroll whether the BottomBar should follow the scroll.
+     */
+    public void setShyFollowsScroll(boolean followsScroll) {
+        if (mShyBehavior == null && mShyScrollListener == null) {
+            throw new IllegalStateException("This BottomBar isn't shy. Use attachShy(), " +
+                    "bb_shy or hideOnScroll() to make it hide on scroll.");
+        }
 
-        View rootView = View.inflate(mContext, mIsTabletMode ?
-                        R.layout.bb_bottom_bar_item_container_tablet : R.layout.bb_bottom_bar_item_container,
-                null);
-        mTabletRightBorder = rootView.findViewById(R.id.bb_tablet_right_border);
+        mShyFollowsScroll = followsScroll;
 
-        mUserContentContainer = (ViewGroup) rootView.findViewById(R.id.bb_user_content_container);
-        mShadowView = rootView.findViewById(R.id.bb_bottom_bar_shadow);
+        if (mShyBehavior != null) {
+            mShyBehavior.setFollowsScroll(followsScroll);
+        }
 
-        mOuterContainer = rootView.findViewById(R.id.bb_bottom_bar_outer_container);
-        mItemContainer = (ViewGroup) rootView.findViewById(R.id.bb_bottom_bar_item_container);
+        if (mShyController != null) {
+            mShyController.setFollowsScroll(followsScroll);
+        }
+    }
 
-        mBackgroundView = rootView.findViewById(R.id.bb_bottom_bar_background_view);
-        mBackgroundOverlay = rootView.findViewById(R.id.bb_bottom_bar_background_overlay);
+    /**
+     * Move a view, such as a FloatingActionButton, together with a shy
+     * BottomBar. The view moves by the same amount in the same frame, so
+     * it doesn't lag behind. This takes over the view's translationY, so
+     * remove any Behavior or animator that moves it on scroll.
+     *
+     * @param view the view to move along with the BottomBar.
+     */
+    public void addShyDependentView(View view) {
+        if (mShyBehavior == null && mShyScrollListener == null) {
+            throw new IllegalStateException("This BottomBar isn't shy. Use attachShy(), " +
+                    "bb_shy or hideOnScroll() to make it hide on scroll.");
+        }
 
-        if (mIsShy && mIgnoreTabletLayout) {
-            mPendingUserContentView = null;
+        if (!mShyDependentViews.contains(view)) {
+            mShyDependentViews.add(view);
         }
 
-        if (mPendingUserContentView != null) {
-            ViewGroup.LayoutParams params = mPendingUserContentView.getLayoutParams();
+        if (mShyBehavior != null) {
+            mShyBehavior.addDependentView(view);
+        }
 
-            if (params == null) {
-                params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
-                        ViewGroup.LayoutParams.MATCH_PARENT);
+        if (mShyController != null) {
+            mShyController.addDependentView(view);
+        }
+    }
+
+    /**
+     * Stop moving a view added with {@link #addShyDependentView(View)},
+     * and put it back where it was.
+     *
+     * @param view the view to stop moving.
+     */
+    public void removeShyDependentView(View view) {
+        mShyDependentViews.remove(view);
+
+        if (mShyBehavior != null) {
+            mShyBehavior.removeDependentView(view);
+        }
+
+        if (mShyController != null) {
+            mShyController.removeDependentView(view);
+        }
+    }
+
+    /**
+     * Hide the BottomBar when the RecyclerView scrolls down, and show it
+     * again when it scrolls up. Works with the plain {@link #attach(Activity, Bundle)},
+     * no CoordinatorLayout needed.
+     * <p/>
+     * The content extends behind the BottomBar, so give the RecyclerView
+     * a bottom padding as tall as the BottomBar and set clipToPadding
+     * to false, so the last items can be scrolled into view.
+     *
+     * @param recyclerView the RecyclerView with your content.
+     */
+    public void hideOnScroll(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(getShyScrollListener());
+    }
+
+    /**
+     * Hide the BottomBar when the NestedScrollView scrolls down, and show
+     * it again when it scrolls up. Works with the plain {@link #attach(Activity, Bundle)},
+     * no CoordinatorLayout needed.
+     * <p/>
+     * This replaces the OnScrollChangeListener of the NestedScrollView.
+     * The content extends behind the BottomBar, so give the NestedScrollView
+     * a bottom padding as tall as the BottomBar and set clipToPadding to
+     * false, so the end of the content can be scrolled into view.
+     *
+     * @param scrollView the NestedScrollView with your content.
+     */
+    public void hideOnScroll(NestedScrollView scrollView) {
+        scrollView.setOnScrollChangeListener(getShyScrollListener());
+    }
+
+    private ShyScrollListener getShyScrollListener() {
+        if (mIsShy) {
+            throw new IllegalStateException("This BottomBar already hides on scroll " +
+                    "inside a CoordinatorLayout.");
+        }
+
+        if (mShyScrollListener == null) {
+            mShyScrollListener = new ShyScrollListener();
+
+            if (mRootView != null) {
+                prepareForHidingOnScroll(mRootView);
+                requestLayout();
             }
+        }
 
-            if (mIsTabletMode && mIsShy) {
-                ((ViewGroup) mPendingUserContentView.getParent()).removeView(mPendingUserContentView);
+        return mShyScrollListener;
+    }
+
+    /**
+     * Hide the shadow that's normally above the BottomBar.
+     */
+    public void hideShadow() {
+        mHideShadow = true;
+
+        if (mShadowView != null) {
+            mShadowView.setVisibility(GONE);
+        }
+    }
+
+    /**
+     * Prevent the BottomBar drawing behind the Navigation Bar and making
+     * it transparent. Must be called before setting items.
+     */
+    public void noNavBarGoodness() {
+        if (mItems != null) {
+            throw new UnsupportedOperationException("This BottomBar already has items! " +
+                    "You must call noNavBarGoodness() before setting the items, preferably " +
+                    "right after attaching it to your layout.");
+        }
+
+        mDrawBehindNavBar = false;
+    }
+
+    /**
+     * Force the BottomBar to behave exactly same on tablets and phones,
+     * instead of showing a left menu on tablets.
+     */
+    public void noTabletGoodness() {
+        if (mItems != null) {
+            throw new UnsupportedOperationException("This BottomBar already has items! " +
+                    "You must call noTabletGoodness() before setting the items, preferably " +
+                    "right after attaching it to your layout.");
+        }
+
+        mIgnoreTabletLayout = true;
+    }
+
+    /**
+     * Show at most this many tabs on phones. The rest of them go into a
+     * "More" tab at the end, which lists them when clicked. Their Views
+     * are never created, and the list is only built when first opened.
+     * <p/>
+     * Tablets show all of the tabs anyway, as the left menu scrolls.
+     * Must be called before setting items.
+     *
+     * @param maxVisibleTabs the limit, counting the "More" tab, or zero for no limit.
+     */
+    public void setMaxVisibleTabs(int maxVisibleTabs) {
+        if (mItems != null) {
+            throw new UnsupportedOperationException("This BottomBar already has items! " +
+                    "You must call setMaxVisibleTabs() before setting the items, preferably " +
+                    "right after attaching it to your layout.");
+        } else if (maxVisibleTabs != 0 && maxVisibleTabs < 2) {
+            throw new IllegalArgumentException("Need room for at least one tab and the " +
+                    "\"More\" tab, but the limit was " + maxVisibleTabs + ".");
+        }
+
+        mMaxVisibleTabs = maxVisibleTabs;
+    }
+
+    /**
+     * Draw all the tab icons, in both their active and inactive colors,
+     * into a single bitmap once the items are set. The tabs then show
+     * their part of it, so vector icons aren't rendered again whenever a
+     * tab is selected. BottomBars with the same icon resources share it.
+     * <p/>
+     * Ignored if any of the icons are loaded from a URI. Must be called
+     * before setting items.
+     *
+     * @param useIconAtlas whether the icons should be drawn from one bitmap.
+     */
+    public void useIconAtlas(boolean useIconAtlas) {
+        if (mItems != null) {
+            throw new UnsupportedOperationException("This BottomBar already has items! " +
+                    "You must call useIconAtlas() before setting the items, preferably " +
+                    "right after attaching it to your layout.");
+        }
+
+        mUseIconAtlas = useIconAtlas;
+    }
+
+    /**
+     * Keep the Fragments of the tabs that aren't selected, instead of
+     * replacing them whenever the tab changes. Switching back is then
+     * instant, as the Fragments keep their Views and state.
+     * <p/>
+     * The Fragments of unselected tabs are hidden, so their Views aren't
+     * laid out or drawn. They get {@code onHiddenChanged(true)} and
+     * {@code setUserVisibleHint(false)}, but stay resumed, so anything
+     * else they keep running should be paused in an
+     * {@link OnTabVisibilityChangeListener}. Must be called before
+     * setting items.
+     *
+     * @param keepHiddenFragments whether to keep the Fragments of unselected tabs.
+     */
+    public void keepHiddenFragments(boolean keepHiddenFragments) {
+        if (mItems != null) {
+            throw new UnsupportedOperationException("This BottomBar already has items! " +
+                    "You must call keepHiddenFragments() before setting the items, preferably " +
+                    "right after attaching it to your layout.");
+        }
+
+        mKeepsHiddenFragments = keepHiddenFragments;
+    }
+
+    /**
+     * Show the tab contents in a ViewPager, so they can be swiped between.
+     * The selected tab follows the swipe as it happens, and selecting a
+     * tab scrolls the ViewPager to it.
+     * <p/>
+     * If the items are {@link BottomBarFragment}s with support library
+     * Fragments and the ViewPager has no adapter, it gets one that pages
+     * between those Fragments. Otherwise, give it an adapter with a page
+     * for each tab.
+     *
+     * @param viewPager the ViewPager to sync with, or null to stop syncing.
+     */
+    public void setupWithViewPager(ViewPager viewPager) {
+        if (mViewPager != null) {
+            mViewPager.removeOnPageChangeListener(mPageChangeListener);
+
+            if (mPagerAdapter != null && mViewPager.getAdapter() == mPagerAdapter) {
+                mViewPager.setAdapter(null);
             }
 
-            mUserContentContainer.addView(mPendingUserContentView, 0, params);
-            mPendingUserContentView = null;
+            mPagerAdapter = null;
         }
 
-        if (mIsShy && !mIsTabletMode) {
-            getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-                @SuppressWarnings("deprecation")
-                @Override
-                public void onGlobalLayout() {
-                    if (!mShyHeightAlreadyCalculated) {
-                        ((CoordinatorLayout.LayoutParams) getLayoutParams())
-                                .setBehavior(new BottomNavigationBehavior(getOuterContainer().getHeight(), 0));
-                    }
+        mViewPager = viewPager;
+        mIsPageDragged = false;
+
+        if (viewPager != null) {
+            viewPager.addOnPageChangeListener(mPageChangeListener);
+            syncViewPager();
+        }
+    }
+
+    /**
+     * Same as {@link #setupWithViewPager(ViewPager)}, but keeps the given
+     * number of tabs on each side of the selected one built, so that
+     * swiping to them shows their content right away.
+     *
+     * @param viewPager          the ViewPager to sync with.
+     * @param offscreenPageLimit how many tabs on each side to keep built.
+     */
+    public void setupWithViewPager(ViewPager viewPager, int offscreenPageLimit) {
+        viewPager.setOffscreenPageLimit(offscreenPageLimit);
+        setupWithViewPager(viewPager);
+    }
+
+    /**
+     * Super ugly hacks
+     * ----------------------------/
+     */
+
+    /**
+     * If you get some unwanted extra padding in the top (such as
+     * when using CoordinatorLayout), this fixes it.
+     */
+    public void noTopOffset() {
+        mUseTopOffset = false;
+    }
+
+    /**
+     * If your ActionBar gets inside the status bar for some reason,
+     * this fixes it.
+     */
+    public void useOnlyStatusBarTopOffset() {
+        mUseOnlyStatusBarOffset = true;
+    }
+
+    /**
+     * ------------------------------------------- //
+     */
+    public BottomBar(Context context) {
+        super(context);
+        init(context, null, 0, 0);
+    }
+
+    public BottomBar(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs, 0, 0);
+    }
+
+    public BottomBar(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs, defStyleAttr, 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public BottomBar(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        init(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    private BottomBar(Context context, BottomBarStateHolder stateHolder) {
+        super(context);
+        mStateHolder = stateHolder;
+        init(context, null, 0, 0);
+
+        if (stateHolder.model != null) {
+            mModel = new BottomBarModel(stateHolder.model);
+        }
+
+        stateHolder.model = mModel;
+        mCustomActiveTabColor = stateHolder.activeTabColor;
+        mIsDarkTheme = stateHolder.darkTheme;
+    }
+
+    private void init(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        mContext = context;
+
+        ResolvedResources res;
+
+        if (mStateHolder != null && mStateHolder.resources != null
+                && mStateHolder.resources.isValidFor(context)) {
+            res = mStateHolder.resources;
+        } else {
+            res = ResolvedResources.get(context);
+
+            if (mStateHolder != null) {
+                mStateHolder.resources = res;
+            }
+        }
 
-                    ViewTreeObserver obs = getViewTreeObserver();
+        applyResolvedResources(res);
 
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-                        obs.removeOnGlobalLayoutListener(this);
+        if (attrs != null) {
+            readAttributes(context, attrs, defStyleAttr, defStyleRes);
+        }
+
+        if (getId() == NO_ID) {
+            // Views without an id don't get their state saved.
+            setId(DEFAULT_IDS[0]);
+        }
+
+        ViewCompat.setOnApplyWindowInsetsListener(this, new OnApplyWindowInsetsListener() {
+            @Override
+            public WindowInsetsCompat onApplyWindowInsets(View v, WindowInsetsCompat insets) {
+                if (!mIsDrawingBehindNavBar) {
+                    return ViewCompat.onApplyWindowInsets(v, insets);
+                }
+
+                applySystemWindowInsets(insets.getSystemWindowInsetTop(),
+                        insets.getSystemWindowInsetBottom());
+                return insets.consumeSystemWindowInsets();
+            }
+        });
+    }
+
+    private void applyResolvedResources(ResolvedResources res) {
+        mDarkBackgroundColor = res.darkBackgroundColor;
+        mTabletRightBorderColor = res.tabletRightBorderColor;
+        mTabletRightBorderDarkColor = res.tabletRightBorderDarkColor;
+        mWhiteColor = res.whiteColor;
+        mPrimaryColor = res.primaryColor;
+        mInActiveColor = res.inActiveColor;
+
+        mTwoDp = res.twoDp;
+        mTenDp = res.tenDp;
+        mIconSize = res.iconSize;
+        mMinFixedItemWidth = res.minFixedItemWidth;
+        mMaxFixedItemWidth = res.maxFixedItemWidth;
+        mTabletModeMinWidth = res.tabletModeMinWidth;
+        mActionBarSize = res.actionBarSize;
+    }
+
+    /**
+     * Forget the colors and dimensions resolved for all BottomBars so far.
+     * They're shared by every BottomBar with the same theme colors and
+     * configuration, and configuration changes are handled automatically,
+     * so this is rarely needed.
+     */
+    public static void invalidateResourceCache() {
+        ResolvedResources.invalidate();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+
+        if (mTabSwitchRecorder != null) {
+            mTabSwitchRecorder.onConfigurationChanged(newConfig.orientation);
+        }
+
+        // Only matters when the Activity handles the changes by itself,
+        // otherwise we get recreated anyway.
+        ResolvedResources res = ResolvedResources.get(getContext());
+
+        if (res.primaryColor != mPrimaryColor || res.inActiveColor != mInActiveColor
+                || res.tenDp != mTenDp) {
+            applyResolvedResources(res);
+
+            if (mTabRailAdapter != null) {
+                mTabRailAdapter.notifyDataSetChanged();
+            } else if (mItemContainer != null) {
+                for (int i = 0; i < mItemContainer.getChildCount(); i++) {
+                    View bottomBarTab = mItemContainer.getChildAt(i);
+
+                    int position = findItemPosition(bottomBarTab);
+
+                    if (position == mModel.getSelectedPosition()) {
+                        selectTab(bottomBarTab, position, false);
                     } else {
-                        obs.removeGlobalOnLayoutListener(this);
+                        unselectTab(bottomBarTab, false);
                     }
                 }
-            });
+            }
+        }
+    }
+
+    private void readAttributes(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        TypedArray ta = context.getTheme().obtainStyledAttributes(attrs,
+                R.styleable.BottomBar, defStyleAttr, defStyleRes);
+
+        try {
+            mIsInflatedFromXml = true;
+            mPendingMenuResource = ta.getResourceId(R.styleable.BottomBar_bb_menu, 0);
+            mIgnoreTabletLayout = !ta.getBoolean(R.styleable.BottomBar_bb_tabletMode, true);
+            mIgnoreShiftingMode = !ta.getBoolean(R.styleable.BottomBar_bb_shiftingMode, true);
+            mCustomActiveTabColor = ta.getColor(R.styleable.BottomBar_bb_activeTabColor, -1);
+            mIsDarkTheme = ta.getBoolean(R.styleable.BottomBar_bb_darkTheme, false);
+            mDrawBehindNavBar = ta.getBoolean(R.styleable.BottomBar_bb_drawBehindNavBar, true);
+            mHideShadow = !ta.getBoolean(R.styleable.BottomBar_bb_showShadow, true);
+
+            if (ta.getBoolean(R.styleable.BottomBar_bb_shy, false)) {
+                toughChildHood(false);
+            }
+        } finally {
+            ta.recycle();
+        }
+    }
+
+    /**
+     * When declared in XML, the only child of the BottomBar is used as the
+     * content, just like the View passed to {@link #attach(View, Bundle)}.
+     * It's moved before the hierarchy is ever laid out, so nothing has to
+     * be reparented afterwards.
+     */
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+
+        if (getChildCount() > 1) {
+            throw new IllegalStateException("BottomBar can host only one direct child.");
+        }
+
+        if (getChildCount() == 1) {
+            View userContent = getChildAt(0);
+            removeView(userContent);
+            setPendingUserContentView(userContent);
+        }
+
+        if (mPendingMenuResource != 0) {
+            mItems = MiscUtils.inflateMenuFromResource(getContext(), mPendingMenuResource);
+            mPendingMenuResource = 0;
+            updateItems(mItems);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        if (mIsInflatedFromXml && mIsShy && getParent() instanceof View) {
+            mUseExtraOffset = ViewCompat.getFitsSystemWindows((View) getParent());
+        }
+
+        if (mTabSwitchMetrics != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            getViewTreeObserver().addOnDrawListener(mTabSwitchMetrics);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        removeCallbacks(mEndTabSwitchTrace);
+        mEndTabSwitchTrace.run();
+
+        if (mTabSwitchMetrics != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mTabSwitchMetrics.cancel();
+            getViewTreeObserver().removeOnDrawListener(mTabSwitchMetrics);
+        }
+
+        if (mShyController != null) {
+            mShyController.cancel();
+        }
+
+        Activity activity = findActivity(mContext);
+
+        if (activity != null && (activity.isFinishing() || activity.isChangingConfigurations())) {
+            releaseFragments();
+        }
+    }
+
+    private static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+
+        return null;
+    }
+
+    /**
+     * Drops our references to the items, their Fragments and the
+     * FragmentManager once the Activity is going away, so nothing that
+     * still holds on to this BottomBar keeps them alive. The items
+     * themselves are left alone, as the app may still use them. The
+     * BottomBar isn't shown again after this.
+     */
+    private void releaseFragments() {
+        mItems = null;
+        mAddedFragments = null;
+        mFragmentHost = null;
+        mFragmentContainer = 0;
+        mPagerAdapter = null;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            mIsTouchOnTabs = isOnTabs(ev.getX(), ev.getY());
+            mTabTouchUpTime = 0;
+        }
+
+        if (mTabSwitchRecorder != null) {
+            mTabSwitchRecorder.onTouchEvent(this, ev, mIsTouchOnTabs);
+        }
+
+        if (mIsTouchOnTabs && ev.getActionMasked() == MotionEvent.ACTION_UP) {
+            // Handed to the metrics only if the touch turns into a tab click.
+            mTabTouchUpTime = ev.getEventTime();
+        }
+
+        return super.dispatchTouchEvent(ev);
+    }
+
+    /**
+     * Whether the point lands on the tabs, rather than on the content
+     * this BottomBar wraps. Takes the shy translation into account.
+     */
+    private boolean isOnTabs(float x, float y) {
+        if (mOuterContainer == null || !mOuterContainer.isShown()) {
+            return false;
+        }
+
+        float left = 0;
+        float top = 0;
+        View view = mOuterContainer;
+
+        while (view != this) {
+            left += view.getLeft() + view.getTranslationX();
+            top += view.getTop() + view.getTranslationY();
+
+            if (!(view.getParent() instanceof View)) {
+                return false;
+            }
+
+            view = (View) view.getParent();
+        }
+
+        return x >= left && x < left + mOuterContainer.getWidth()
+                && y >= top && y < top + mOuterContainer.getHeight();
+    }
+
+    private View initializeViews(boolean tabletMode) {
+        BottomBarTrace.beginSection(BottomBarTrace.INITIALIZE_VIEWS);
+
+        try {
+            View rootView = View.inflate(mContext, tabletMode ?
+                            R.layout.bb_bottom_bar_item_container_tablet : R.layout.bb_bottom_bar_item_container,
+                    null);
+
+            if (tabletMode) {
+                mTabletRootView = rootView;
+
+                RecyclerView tabRail = (RecyclerView) rootView.findViewById(R.id.bb_bottom_bar_item_container);
+                tabRail.setLayoutManager(new LinearLayoutManager(mContext));
+
+                // Tabs change in place, crossfading them would look odd.
+                tabRail.setItemAnimator(null);
+            } else {
+                mPhoneRootView = rootView;
+            }
+
+            View shadowView = rootView.findViewById(R.id.bb_bottom_bar_shadow);
+
+            if (mHideShadow && shadowView != null) {
+                shadowView.setVisibility(GONE);
+            }
+
+            useRootView(rootView, tabletMode);
+            return rootView;
+        } finally {
+            BottomBarTrace.endSection();
+        }
+    }
+
+    /**
+     * Points the fields at the Views of the given hierarchy, and moves
+     * the pending user content into it.
+     */
+    private void useRootView(View rootView, boolean tabletMode) {
+        mIsTabletMode = tabletMode;
+        mRootView = rootView;
+        mTabletRightBorder = rootView.findViewById(R.id.bb_tablet_right_border);
+
+        mUserContentContainer = (ViewGroup) rootView.findViewById(R.id.bb_user_content_container);
+        mShadowView = rootView.findViewById(R.id.bb_bottom_bar_shadow);
+        mOuterContainer = rootView.findViewById(R.id.bb_bottom_bar_outer_container);
+        mItemContainer = (ViewGroup) rootView.findViewById(R.id.bb_bottom_bar_item_container);
+
+        if (mIsTabletMode) {
+            mTabRail = (RecyclerView) mItemContainer;
+            mTabRailAdapter = (TabRailAdapter) mTabRail.getAdapter();
+        } else {
+            mTabRail = null;
+            mTabRailAdapter = null;
+        }
+
+        mBackgroundView = rootView.findViewById(R.id.bb_bottom_bar_background_view);
+        mBackgroundOverlay = rootView.findViewById(R.id.bb_bottom_bar_background_overlay);
+
+        if (mIsShy && mIgnoreTabletLayout) {
+            mPendingUserContentView = null;
+        }
+
+        if (mPendingUserContentView != null) {
+            ViewGroup.LayoutParams params = mPendingUserContentView.getLayoutParams();
+
+            if (params == null) {
+                params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT);
+            }
+
+            if (mIsTabletMode && mIsShy && mPendingUserContentView.getParent() != null) {
+                ((ViewGroup) mPendingUserContentView.getParent()).removeView(mPendingUserContentView);
+            }
+
+            mUserContentContainer.addView(mPendingUserContentView, 0, params);
+            mUserContentView = mPendingUserContentView;
+            mPendingUserContentView = null;
+        }
+
+        if (mIsDrawingBehindNavBar) {
+            applySystemWindowInsets(mTopInset, mNavBarInset);
+        }
+
+        if (mShyScrollListener != null) {
+            prepareForHidingOnScroll(rootView);
+        }
+    }
+
+    /**
+     * Makes this BottomBar "shy". In other words, it hides on scroll.
+     */
+    private void toughChildHood(boolean useExtraOffset) {
+        mIsShy = true;
+        mUseExtraOffset = useExtraOffset;
+        mShyBehavior = new BottomNavigationBehavior<>(0, 0);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+
+        if (mIsShy && !mIsTabletMode && mOuterContainer != null) {
+            updateShyBehavior();
+        } else if (mShyController != null) {
+            // The shadow moves with the BottomBar, so it has to get out of the way too.
+            int shadowHeight = mShadowView.getVisibility() == VISIBLE ? mShadowView.getHeight() : 0;
+            mShyController.setOffsets(mOuterContainer.getHeight() + shadowHeight, 0);
+        }
+    }
+
+    /**
+     * Lets the user content extend behind the BottomBar, and moves the
+     * shadow out of the content, so the shadow can slide away together
+     * with the BottomBar. Tablets have no BottomBar to hide.
+     */
+    private void prepareForHidingOnScroll(View rootView) {
+        if (mIsTabletMode) {
+            mShyController = null;
+            mShyScrollListener.setController(null);
+            return;
+        }
+
+        // The phone hierarchy is prepared again when switching back to it.
+        if (mShadowView.getParent() != rootView) {
+            ((RelativeLayout.LayoutParams) mUserContentContainer.getLayoutParams())
+                    .addRule(RelativeLayout.ABOVE, 0);
+
+            int shadowHeight = mShadowView.getLayoutParams().height;
+            RelativeLayout.LayoutParams shadowParams = new RelativeLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, shadowHeight);
+            shadowParams.addRule(RelativeLayout.ABOVE, R.id.bb_bottom_bar_outer_container);
+
+            ((ViewGroup) mShadowView.getParent()).removeView(mShadowView);
+            ((ViewGroup) rootView).addView(mShadowView, shadowParams);
+        }
+
+        mShyController = new ShyTranslationController(mOuterContainer, mShadowView);
+        mShyController.setFollowsScroll(mShyFollowsScroll);
+
+        for (int i = 0; i < mShyDependentViews.size(); i++) {
+            mShyController.addDependentView(mShyDependentViews.get(i));
+        }
+
+        mShyScrollListener.setController(mShyController);
+    }
+
+    /**
+     * Keeps the hide distance of the shy BottomBar in sync with the
+     * laid out height, so changes caused by font scale or window insets
+     * get picked up without installing a new Behavior.
+     */
+    private void updateShyBehavior() {
+        if (!(getLayoutParams() instanceof CoordinatorLayout.LayoutParams)) {
+            return;
+        }
+
+        CoordinatorLayout.LayoutParams params = (CoordinatorLayout.LayoutParams) getLayoutParams();
+
+        if (params.getBehavior() != mShyBehavior) {
+            params.setBehavior(mShyBehavior);
+        }
+
+        int defaultOffset = mUseExtraOffset ? mNavBarInset : 0;
+        mShyBehavior.setOffsets(this, mOuterContainer.getHeight(), defaultOffset);
+    }
+
+    @Override
+    public void onClick(View v) {
+        if (mTabSwitchMetrics != null && mTabTouchUpTime != 0) {
+            mTabSwitchMetrics.onTouchUp(mTabTouchUpTime);
+        }
+
+        // Clicks without a touch, such as from a keyboard, have no touch stage.
+        mTabTouchUpTime = 0;
+
+        if (v == mMoreTab) {
+            showOverflow();
+        } else if (v.getTag().equals(TAG_BOTTOM_BAR_VIEW_INACTIVE)) {
+            int position = findItemPosition(v);
+
+            updateTabSelection(mModel.getSelectedPosition(), false, true);
+            selectTab(v, position, true);
+            updateSelectedTab(position);
+        } else {
+            int position = findItemPosition(v);
+
+            if (mTabSwitchRecorder != null) {
+                mTabSwitchRecorder.onReselected(position);
+            }
+
+            dispatchTabChange(-1, position);
+        }
+    }
+
+    private void updateSelectedTab(int newPosition) {
+        int oldPosition = mModel.select(newPosition);
+
+        if (oldPosition != BottomBarModel.NO_POSITION) {
+            if (mTabSwitchMetrics != null) {
+                mTabSwitchMetrics.onTabSelected(newPosition);
+            }
+
+            if (mTabSwitchRecorder != null) {
+                mTabSwitchRecorder.onSelected(newPosition);
+            }
+
+            if (BottomBarTrace.sEnabled) {
+                beginTabSwitchTrace();
+            }
+
+            dispatchTabChange(oldPosition, newPosition);
+
+            if (mListener != null) {
+                mListener.onItemSelected(mModel.getSelectedPosition());
+            }
+
+            if (mMenuListener != null && mItems instanceof BottomBarTab[]) {
+                mMenuListener.onMenuItemSelected(((BottomBarTab) mItems[mModel.getSelectedPosition()]).id);
+            }
+
+            if (mViewPager != null && mViewPager.getCurrentItem() != newPosition) {
+                mViewPager.setCurrentItem(newPosition, true);
+            }
+
+            updateCurrentFragment();
+        }
+    }
+
+    /**
+     * Starts an async trace slice that ends after the first frame drawn
+     * with the new content. An unfinished slice from a previous switch
+     * is ended first, so the slices never overlap.
+     */
+    private void beginTabSwitchTrace() {
+        if (mTabSwitchTraceCookie != 0) {
+            removeCallbacks(mEndTabSwitchTrace);
+            mEndTabSwitchTrace.run();
+        }
+
+        mTabSwitchTraceCookie = ++sTabSwitchTraceCookie;
+        BottomBarTrace.beginAsyncSection(BottomBarTrace.TAB_SWITCH, mTabSwitchTraceCookie);
+
+        ViewCompat.postOnAnimation(this, new Runnable() {
+            @Override
+            public void run() {
+                // Runs on the next frame, so posting from here
+                // runs after that frame has been drawn.
+                post(mEndTabSwitchTrace);
+            }
+        });
+    }
+
+    /**
+     * Delivers a tab change to the registered {@link OnTabChangeListener}s.
+     *
+     * @param oldPosition the previously selected position, or -1 for a reselection.
+     * @param newPosition the selected position.
+     */
+    private void dispatchTabChange(int oldPosition, int newPosition) {
+        if (mTabChangeListeners.isEmpty()) {
+            return;
+        }
+
+        boolean hasFirstFrameListeners = false;
+        boolean hasTransitionListeners = false;
+
+        for (TabChangeListenerRecord record : mTabChangeListeners) {
+            if (record.delivery == DELIVER_IMMEDIATELY) {
+                record.dispatch(oldPosition, newPosition);
+            } else if (record.delivery == DELIVER_AFTER_FIRST_FRAME) {
+                hasFirstFrameListeners = true;
+            } else {
+                hasTransitionListeners = true;
+            }
+        }
+
+        if (hasFirstFrameListeners) {
+            // The animation callback runs right before the next frame is drawn,
+            // and anything posted from there runs right after it.
+            final TabChangeDispatch dispatch = new TabChangeDispatch(
+                    DELIVER_AFTER_FIRST_FRAME, oldPosition, newPosition);
+            ViewCompat.postOnAnimation(this, new Runnable() {
+                @Override
+                public void run() {
+                    post(dispatch);
+                }
+            });
+        }
+
+        if (hasTransitionListeners) {
+            // The transition of a previous switch was cut short by this one.
+            if (mHasPendingTransitionDispatch) {
+                removeCallbacks(mTransitionDispatch);
+                mTransitionDispatch.run();
+            }
+
+            mTransitionOldPosition = oldPosition;
+            mTransitionNewPosition = newPosition;
+            mHasPendingTransitionDispatch = true;
+
+            // Otherwise, the listener of the animations delivers them.
+            if (!isTransitionRunning()) {
+                post(mTransitionDispatch);
+            }
+        }
+    }
+
+    /**
+     * Checks the state the selected tab and the background are animating
+     * to, rather than counting animations, so ends of animations from
+     * earlier switches can't finish the transition too early.
+     */
+    private boolean isTransitionRunning() {
+        if (mBackgroundAnimator != null) {
+            return true;
+        }
+
+        View tab = findTabView(mModel.getSelectedPosition());
+
+        if (tab == null || tab.findViewById(R.id.bb_bottom_bar_title) == null) {
+            return false;
+        }
+
+        int translationY = mIsShiftingMode ? mTenDp : mTwoDp;
+        return ViewCompat.getTranslationY(tab) != -translationY;
+    }
+
+    private static class TabChangeListenerRecord {
+        final OnTabChangeListener listener;
+        final int delivery;
+
+        TabChangeListenerRecord(OnTabChangeListener listener, int delivery) {
+            this.listener = listener;
+            this.delivery = delivery;
+        }
+
+        void dispatch(int oldPosition, int newPosition) {
+            if (oldPosition == -1) {
+                listener.onTabReselected(newPosition);
+            } else {
+                listener.onTabUnselected(oldPosition);
+                listener.onTabSelected(newPosition);
+            }
+        }
+    }
+
+    private class TabChangeDispatch implements Runnable {
+        private final int mDelivery;
+        private final int mOldPosition;
+        private final int mNewPosition;
+
+        TabChangeDispatch(int delivery, int oldPosition, int newPosition) {
+            mDelivery = delivery;
+            mOldPosition = oldPosition;
+            mNewPosition = newPosition;
+        }
+
+        @Override
+        public void run() {
+            for (TabChangeListenerRecord record : mTabChangeListeners) {
+                if (record.delivery == mDelivery) {
+                    record.dispatch(mOldPosition, mNewPosition);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean onLongClick(View v) {
+        if ((mIsShiftingMode || mIsTabletMode) && v.getTag().equals(TAG_BOTTOM_BAR_VIEW_INACTIVE)) {
+            String title = v == mMoreTab ? mContext.getString(R.string.bb_more_tab_title)
+                    : mItems[findItemPosition(v)].getTitle(mContext);
+            Toast.makeText(mContext, title, Toast.LENGTH_SHORT).show();
+        }
+
+        return true;
+    }
+
+    private void updateItems(final BottomBarItemBase[] bottomBarItems) {
+        BottomBarTrace.beginSection(BottomBarTrace.UPDATE_ITEMS);
+
+        try {
+            Configuration config = mContext.getResources().getConfiguration();
+            int windowWidth = MiscUtils.dpToPixel(mContext, config.screenWidthDp);
+            int windowHeight = MiscUtils.dpToPixel(mContext, config.screenHeightDp);
+
+            if (mItemContainer == null) {
+                addView(initializeViews(pickTabletMode(windowWidth, windowHeight)));
+            }
+
+            int visibleTabCount = BottomBarModel.getVisibleTabCount(bottomBarItems.length, mMaxVisibleTabs);
+
+            if (windowWidth > 0) {
+                mIsShiftingMode = !mIgnoreShiftingMode
+                        && BottomBarModel.isShiftingMode(visibleTabCount, windowWidth, mMinFixedItemWidth);
+            } else {
+                mIsShiftingMode = !mIgnoreShiftingMode && MAX_FIXED_TAB_COUNT < visibleTabCount;
+            }
+            mDefaultBackgroundColor = mCurrentBackgroundColor = mPrimaryColor;
+
+            if (!mIsTabletMode && mIsShiftingMode) {
+                mBackgroundView.setBackgroundColor(mDefaultBackgroundColor);
+
+                if (mContext instanceof Activity) {
+                    prepareForNavBarInsets((Activity) mContext);
+                }
+            } else if (mIsDarkTheme) {
+                darkThemeMagic();
+            }
+
+            mModel.setTabCount(bottomBarItems.length);
+            mBadgeCounts = new int[bottomBarItems.length];
+
+            bindTabs(bottomBarItems);
+            updateCurrentFragment();
+
+            if (mViewPager != null) {
+                syncViewPager();
+            }
+
+            if (mBadgeUpdates.isScheduled()) {
+                ViewCompat.postOnAnimation(this, mApplyBadgeUpdates);
+            }
+        } finally {
+            BottomBarTrace.endSection();
+        }
+    }
+
+    /**
+     * Picks the first presentation with the same rule as
+     * {@link #updatePresentation(int, int)}, from the size of the
+     * Activity's window, so the first layout doesn't have to
+     * switch it. Shy BottomBars keep the presentation they start with.
+     */
+    private boolean pickTabletMode(int windowWidth, int windowHeight) {
+        if (mIgnoreTabletLayout) {
+            return false;
+        }
+
+        if (mIsShy || windowWidth <= 0 || windowHeight <= 0) {
+            return mContext.getResources().getBoolean(R.bool.bb_bottom_bar_is_tablet_mode);
+        }
+
+        return BottomBarModel.isTabletMode(Math.min(windowWidth, windowHeight), mTabletModeMinWidth);
+    }
+
+    /**
+     * Inflates the tab Views for the current presentation. The selected
+     * position, colors and text styling all come from the current state,
+     * so this can be used for switching between presentations as well.
+     * <p/>
+     * The tablet rail only gets an adapter, which binds the tabs as they
+     * scroll into view.
+     */
+    private void bindTabs(BottomBarItemBase[] bottomBarItems) {
+        mMoreTab = null;
+        mOverflowPopup = null;
+        mIconAtlas = mUseIconAtlas ? obtainIconAtlas(bottomBarItems) : null;
+
+        if (mTabRail != null) {
+            mOverflowStart = BottomBarModel.NO_POSITION;
+            mTabRailAdapter = new TabRailAdapter();
+            mTabRail.setAdapter(mTabRailAdapter);
+            mTabRail.scrollToPosition(mModel.getSelectedPosition());
+            return;
+        }
+
+        mOverflowStart = BottomBarModel.getOverflowStart(bottomBarItems.length, mMaxVisibleTabs);
+
+        int visibleTabCount = BottomBarModel.getVisibleTabCount(bottomBarItems.length, mMaxVisibleTabs);
+        int estimatedWidth = getEstimatedWidth();
+        int tabWidth = estimatedWidth > 0 ? BottomBarModel.computeTabWidth(estimatedWidth, visibleTabCount,
+                mMaxFixedItemWidth) : LinearLayout.LayoutParams.WRAP_CONTENT;
+        mPhoneTabsShifting = mIsShiftingMode;
+
+        for (int index = 0; index < visibleTabCount; index++) {
+            BottomBarTrace.beginSection(BottomBarTrace.BIND_TAB);
+
+            View bottomBarTab = createTabView();
+
+            // Corrected in onSizeChanged, if the BottomBar gets another width.
+            bottomBarTab.setLayoutParams(new LinearLayout.LayoutParams(
+                    tabWidth, LinearLayout.LayoutParams.WRAP_CONTENT));
+
+            mItemContainer.addView(bottomBarTab);
+
+            if (index == mOverflowStart) {
+                mMoreTab = bottomBarTab;
+                bindMoreTab(bottomBarTab);
+            } else {
+                bindTab(bottomBarTab, bottomBarItems[index], index);
+            }
+
+            BottomBarTrace.endSection();
+        }
+    }
+
+    /**
+     * The width the BottomBar has, or the width of the window before
+     * it's laid out for the first time.
+     */
+    private int getEstimatedWidth() {
+        int width = getWidth();
+
+        if (width == 0) {
+            width = MiscUtils.dpToPixel(mContext, mContext.getResources().getConfiguration().screenWidthDp);
+        }
+
+        return width - getPaddingLeft() - getPaddingRight();
+    }
+
+    private View createTabView() {
+        int layoutResource;
+
+        if (mIsShiftingMode && !mIsTabletMode) {
+            layoutResource = R.layout.bb_bottom_bar_item_shifting;
+        } else {
+            layoutResource = mIsTabletMode ?
+                    R.layout.bb_bottom_bar_item_fixed_tablet : R.layout.bb_bottom_bar_item_fixed;
+        }
+
+        View bottomBarTab = View.inflate(mContext, layoutResource, null);
+        bottomBarTab.setOnClickListener(this);
+        bottomBarTab.setOnLongClickListener(this);
+        return bottomBarTab;
+    }
+
+    /**
+     * Sets up a tab View for the item at the given position. The View
+     * may have shown another tab before, as the tablet rail reuses them.
+     */
+    private void bindTab(View bottomBarTab, BottomBarItemBase bottomBarItemBase, int position) {
+        if (mIconAtlas != null) {
+            bindTabContent(bottomBarTab, mIconAtlas.newIcon(position), bottomBarItemBase.getTitle(mContext));
+        } else if (bottomBarItemBase.iconUri != null) {
+            bindTabContent(bottomBarTab, ContextCompat.getDrawable(mContext, R.drawable.bb_icon_placeholder),
+                    bottomBarItemBase.getTitle(mContext));
+            loadIcon((ImageView) bottomBarTab.findViewById(R.id.bb_bottom_bar_icon), bottomBarItemBase.iconUri);
+        } else {
+            bindTabContent(bottomBarTab, getIcon(bottomBarItemBase), bottomBarItemBase.getTitle(mContext));
+        }
+
+        if (bottomBarItemBase instanceof BottomBarTab) {
+            bottomBarTab.setId(((BottomBarTab) bottomBarItemBase).id);
+        }
+
+        ((BottomBarTabView) bottomBarTab).setBadgeCount(mBadgeCounts[position]);
+
+        if (position == mModel.getSelectedPosition()) {
+            selectTab(bottomBarTab, position, false);
+        } else {
+            unselectTab(bottomBarTab, false);
+        }
+    }
+
+    /**
+     * Replaces the placeholder with the icon once it's loaded, unless the
+     * View has been bound to another tab by then.
+     */
+    private void loadIcon(final ImageView icon, Uri iconUri) {
+        final String key = IconLoader.keyFor(iconUri, mIconSize);
+        icon.setTag(R.id.bb_bottom_bar_icon_request, key);
+
+        IconLoader.get(mContext).load(iconUri, mIconSize, new IconLoader.Callback() {
+            @Override
+            public void onIconLoaded(Bitmap bitmap) {
+                if (bitmap != null && key.equals(icon.getTag(R.id.bb_bottom_bar_icon_request))) {
+                    icon.setTag(R.id.bb_bottom_bar_icon_request, null);
+                    icon.setImageDrawable(new BitmapDrawable(getResources(), bitmap));
+                }
+            }
+        });
+    }
+
+    /**
+     * The atlas is drawn in the tints the current presentation uses,
+     * so switching tabs only switches between its parts.
+     */
+    private IconAtlas obtainIconAtlas(BottomBarItemBase[] bottomBarItems) {
+        BottomBarTrace.beginSection(BottomBarTrace.BUILD_ICON_ATLAS);
+
+        try {
+            int activeTint;
+            int inactiveTint;
+
+            if (mIsShiftingMode && !mIsTabletMode) {
+                activeTint = inactiveTint = mWhiteColor;
+            } else {
+                activeTint = mCustomActiveTabColor != -1 ? mCustomActiveTabColor : mPrimaryColor;
+                inactiveTint = mIsDarkTheme ? mWhiteColor : mInActiveColor;
+            }
+
+            return IconAtlas.obtain(mContext, bottomBarItems, activeTint, inactiveTint, mIconSize);
+        } finally {
+            BottomBarTrace.endSection();
+        }
+    }
+
+    /**
+     * The "More" tab looks selected whenever one of the tabs in it is.
+     */
+    private void bindMoreTab(View moreTab) {
+        bindTabContent(moreTab, ContextCompat.getDrawable(mContext, R.drawable.bb_ic_more),
+                mContext.getString(R.string.bb_more_tab_title));
+
+        int selectedPosition = mModel.getSelectedPosition();
+
+        if (selectedPosition >= mOverflowStart) {
+            selectTab(moreTab, selectedPosition, false);
+        } else {
+            unselectTab(moreTab, false);
+        }
+    }
+
+    private void bindTabContent(View bottomBarTab, Drawable iconDrawable, String titleText) {
+        ImageView icon = (ImageView) bottomBarTab.findViewById(R.id.bb_bottom_bar_icon);
+
+        // Forget any icon still loading for the tab this View showed before.
+        icon.setTag(R.id.bb_bottom_bar_icon_request, null);
+        icon.setImageDrawable(iconDrawable);
+
+        if (!mIsTabletMode) {
+            TextView title = (TextView) bottomBarTab.findViewById(R.id.bb_bottom_bar_title);
+            title.setText(titleText);
+
+            if (mTextAppearance != -1) {
+                MiscUtils.setTextAppearance(title, mTextAppearance);
+            }
+
+            if (mTypeface != null) {
+                title.setTypeface(mTypeface);
+            }
+
+            if (!mIsDarkTheme) {
+                title.setAlpha(1.0f);
+            }
+        }
+
+        if (mIsDarkTheme || (!mIsTabletMode && mIsShiftingMode)) {
+            tintIcon(icon, mWhiteColor);
+        } else {
+            // The dark theme dims the tabs, and may have been turned off.
+            icon.setAlpha(1.0f);
+        }
+    }
+
+    /**
+     * Icons from the atlas switch to their pre-drawn tint, others get
+     * tinted with a color filter.
+     */
+    private void tintIcon(ImageView icon, int color) {
+        Drawable drawable = icon.getDrawable();
+
+        if (drawable instanceof IconAtlas.Icon && ((IconAtlas.Icon) drawable).showTint(color)) {
+            icon.clearColorFilter();
+        } else {
+            icon.setColorFilter(color);
+        }
+    }
+
+    /**
+     * Get the View of the tab at the given position.
+     * <p/>
+     * On tablets, the tabs are reused as the list scrolls, so this is null
+     * for tabs that aren't on the screen at the moment. Don't hold on
+     * to the returned View for the same reason. Tabs in the "More" tab
+     * don't have a View at all.
+     *
+     * @param position zero-based index for the tab.
+     * @return the View for the tab, or null if it doesn't have one right now.
+     */
+    public View getTabViewAt(int position) {
+        if (mItemContainer == null || mItems == null || position < 0 || position >= mItems.length) {
+            return null;
+        }
+
+        if (mTabRail != null) {
+            RecyclerView.ViewHolder holder = mTabRail.findViewHolderForAdapterPosition(position);
+            return holder != null ? holder.itemView : null;
+        }
+
+        if (mOverflowStart != BottomBarModel.NO_POSITION && position >= mOverflowStart) {
+            return null;
+        }
+
+        return mItemContainer.getChildAt(position);
+    }
+
+    private View findTabView(int position) {
+        if (mMoreTab != null && position >= mOverflowStart) {
+            return mMoreTab;
+        }
+
+        return getTabViewAt(position);
+    }
+
+    /**
+     * Lists the tabs that didn't fit, building the list the first time.
+     */
+    private void showOverflow() {
+        if (mOverflowPopup == null) {
+            mOverflowPopup = new PopupMenu(mContext, mMoreTab);
+            Menu menu = mOverflowPopup.getMenu();
+
+            for (int position = mOverflowStart; position < mItems.length; position++) {
+                menu.add(Menu.NONE, position, position, mItems[position].getTitle(mContext));
+            }
+
+            menu.setGroupCheckable(Menu.NONE, true, false);
+            mOverflowPopup.setOnMenuItemClickListener(new PopupMenu.OnMenuItemClickListener() {
+                @Override
+                public boolean onMenuItemClick(MenuItem item) {
+                    onOverflowItemClick(item.getItemId());
+                    return true;
+                }
+            });
+        }
+
+        Menu menu = mOverflowPopup.getMenu();
+
+        for (int i = 0; i < menu.size(); i++) {
+            MenuItem item = menu.getItem(i);
+            item.setChecked(item.getItemId() == mModel.getSelectedPosition());
+        }
+
+        mOverflowPopup.show();
+    }
+
+    private void onOverflowItemClick(int position) {
+        if (position != mModel.getSelectedPosition()) {
+            selectTabAtPosition(position, true);
+            return;
+        }
+
+        if (mTabSwitchRecorder != null) {
+            mTabSwitchRecorder.onReselected(position);
+        }
+
+        dispatchTabChange(-1, position);
+    }
+
+    /**
+     * Updates the look of the tab at the given position. A tab without a
+     * View is rebound instead once it scrolls into view again.
+     */
+    private void updateTabSelection(int position, boolean selected, boolean animate) {
+        View tab = findTabView(position);
+
+        if (tab == null) {
+            if (mTabRailAdapter != null) {
+                mTabRailAdapter.notifyItemChanged(position);
+            }
+
+            return;
+        }
+
+        if (selected) {
+            selectTab(tab, position, animate);
+        } else {
+            unselectTab(tab, animate);
+        }
+    }
+
+    /**
+     * Gives the ViewPager the Fragments as its pages if it needs them,
+     * and shows the selected tab in it.
+     */
+    private void syncViewPager() {
+        if (mItems == null) {
+            return;
+        }
+
+        if (mViewPager.getAdapter() == null && mItems instanceof BottomBarFragment[]
+                && mFragmentHost instanceof FragmentHost.Support) {
+            FragmentHost.Support fragmentHost = (FragmentHost.Support) mFragmentHost;
+
+            // Already shown the plain way, if the items were set first.
+            android.support.v4.app.Fragment shown = mFragmentContainer != 0 ?
+                    fragmentHost.findFragmentById(mFragmentContainer) : null;
+
+            if (shown != null) {
+                fragmentHost.beginTransaction()
+                        .remove(shown)
+                        .commit();
+            }
+
+            mPagerAdapter = new TabFragmentPagerAdapter(fragmentHost.getFragmentManager(),
+                    (BottomBarFragment[]) mItems);
+            mViewPager.setAdapter(mPagerAdapter);
+        }
+
+        int selectedPosition = mModel.getSelectedPosition();
+
+        if (mViewPager.getCurrentItem() != selectedPosition) {
+            mViewPager.setCurrentItem(selectedPosition, false);
+        }
+    }
+
+    /**
+     * Moves the tabs on both sides of the swipe part of the way between
+     * unselected and selected, and blends the background colors.
+     */
+    private void trackSwipe(int position, float offset) {
+        mSwipePosition = position;
+        mSwipeOffset = offset;
+
+        if (mItems == null || position >= mItems.length) {
+            return;
+        }
+
+        int nextPosition = Math.min(position + 1, mItems.length - 1);
+        View tab = findTabView(position);
+        View nextTab = findTabView(nextPosition);
+
+        if (tab != null && tab != nextTab) {
+            applySelectionFraction(tab, 1 - offset);
+        }
+
+        if (nextTab != null && nextTab != tab) {
+            applySelectionFraction(nextTab, offset);
+        }
+
+        if (mIsShiftingMode && !mIsTabletMode) {
+            int color = BottomBarModel.blendColors(
+                    mModel.getBackgroundColor(position, mDefaultBackgroundColor),
+                    mModel.getBackgroundColor(nextPosition, mDefaultBackgroundColor),
+                    offset);
+
+            if (color != mCurrentBackgroundColor) {
+                mCurrentBackgroundColor = color;
+                mBackgroundView.setBackgroundColor(color);
+            }
+        }
+    }
+
+    /**
+     * The swipe went far enough to pick a new tab. The tabs keep
+     * following the swipe until it settles.
+     */
+    private void onPageSwiped(int position) {
+        updateTabSelection(mModel.getSelectedPosition(), false, false);
+        updateTabSelection(position, true, false);
+
+        if (mTabRail != null) {
+            mTabRail.scrollToPosition(position);
+        }
+
+        updateSelectedTab(position);
+
+        if (mIsPageDragged) {
+            trackSwipe(mSwipePosition, mSwipeOffset);
+        }
+    }
+
+    /**
+     * The same look {@link #selectTab(View, int, boolean)} and
+     * {@link #unselectTab(View, boolean)} animate between, frozen at
+     * the given fraction of the way to selected.
+     */
+    private void applySelectionFraction(View tab, float fraction) {
+        ImageView icon = (ImageView) tab.findViewById(R.id.bb_bottom_bar_icon);
+        TextView title = (TextView) tab.findViewById(R.id.bb_bottom_bar_title);
+
+        tab.animate().cancel();
+
+        if (!mIsShiftingMode || mIsTabletMode) {
+            int activeColor = mCustomActiveTabColor != -1 ? mCustomActiveTabColor : mPrimaryColor;
+            int inActiveColor = mIsDarkTheme ? mWhiteColor : mInActiveColor;
+            int color = BottomBarModel.blendColors(inActiveColor, activeColor, fraction);
+            tintIcon(icon, color);
+
+            if (title != null) {
+                title.setTextColor(color);
+            }
+        }
+
+        float alpha = 0.6f + 0.4f * fraction;
+
+        if (mIsDarkTheme) {
+            if (title != null) {
+                title.setAlpha(alpha);
+            }
+
+            icon.setAlpha(alpha);
+        }
+
+        if (title == null) {
+            return;
+        }
+
+        title.animate().cancel();
+
+        float inactiveScale = mIsShiftingMode ? 0 : 0.86f;
+        float scale = inactiveScale + (1 - inactiveScale) * fraction;
+        int translationY = mIsShiftingMode ? mTenDp : mTwoDp;
+
+        title.setScaleX(scale);
+        title.setScaleY(scale);
+        tab.setTranslationY(-translationY * fraction);
+
+        if (mIsShiftingMode) {
+            icon.animate().cancel();
+            icon.setAlpha(alpha);
+        }
+    }
+
+    private void scheduleBadgeUpdate() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            ViewCompat.postOnAnimation(this, mApplyBadgeUpdates);
+            return;
+        }
+
+        synchronized (BottomBar.class) {
+            if (sMainHandler == null) {
+                sMainHandler = new Handler(Looper.getMainLooper());
+            }
+        }
+
+        sMainHandler.post(mScheduleBadgeUpdate);
+    }
+
+    private void applyBadgeUpdates() {
+        // Keep the updates until there are tabs to apply them to.
+        if (mItems == null) {
+            return;
+        }
+
+        mBadgeUpdates.drain();
+
+        SparseIntArray byPosition = mBadgeUpdates.drainedByPosition();
+
+        for (int i = 0; i < byPosition.size(); i++) {
+            updateBadgeCount(byPosition.keyAt(i), byPosition.valueAt(i));
+        }
+
+        SparseIntArray byId = mBadgeUpdates.drainedById();
+
+        for (int i = 0; i < byId.size(); i++) {
+            int tabId = byId.keyAt(i);
+
+            for (int position = 0; position < mItems.length; position++) {
+                if (mItems[position] instanceof BottomBarTab
+                        && ((BottomBarTab) mItems[position]).id == tabId) {
+                    updateBadgeCount(position, byId.valueAt(i));
+                    break;
+                }
+            }
+        }
+    }
+
+    private void updateBadgeCount(int position, int count) {
+        if (position < 0 || position >= mBadgeCounts.length) {
+            return;
+        }
+
+        mBadgeCounts[position] = count;
+
+        View tab = getTabViewAt(position);
+
+        if (tab != null) {
+            ((BottomBarTabView) tab).setBadgeCount(count);
+        } else if (mTabRailAdapter != null) {
+            mTabRailAdapter.notifyItemChanged(position);
+        }
+    }
+
+    private Drawable getIcon(BottomBarItemBase item) {
+        if (mStateHolder == null) {
+            return item.getIcon(mContext);
+        }
+
+        Drawable.ConstantState iconState;
+
+        if (item.iconResource != 0) {
+            iconState = mStateHolder.icons.get(item.iconResource);
+
+            if (iconState == null) {
+                Drawable icon = item.getIcon(mContext);
+                iconState = icon != null ? icon.getConstantState() : null;
+
+                if (iconState == null) {
+                    return icon;
+                }
+
+                mStateHolder.icons.put(item.iconResource, iconState);
+            }
+        } else {
+            iconState = item.icon != null ? item.icon.getConstantState() : null;
+
+            if (iconState == null) {
+                return item.icon;
+            }
+        }
+
+        // The retained state must never be attached to a View, as that
+        // would leak it and the Activity along with it.
+        return iconState.newDrawable(getResources());
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        if (mItems == null || mItems.length == 0 || mItemContainer == null) {
+            return;
+        }
+
+        int availableWidth = w - getPaddingLeft() - getPaddingRight();
+        int availableHeight = h - getPaddingTop() - getPaddingBottom();
+
+        if (availableWidth > 0) {
+            updatePresentation(availableWidth, Math.min(availableWidth, availableHeight));
+
+            if (!mIsTabletMode) {
+                updateTabWidths(availableWidth);
+            }
+        }
+    }
+
+    /**
+     * Picks the fixed, shifting or tablet presentation from the space we
+     * actually have, so multi-window and resizable windows get the right
+     * one without building a new BottomBar.
+     */
+    private void updatePresentation(int availableWidth, int smallestWidth) {
+        boolean tabletMode = mIsTabletMode;
+
+        if (!mIgnoreTabletLayout && !mIsShy) {
+            tabletMode = BottomBarModel.isTabletMode(smallestWidth, mTabletModeMinWidth);
+        }
+
+        boolean shiftingMode = !mIgnoreShiftingMode
+                && BottomBarModel.isShiftingMode(BottomBarModel.getVisibleTabCount(mItems.length, mMaxVisibleTabs),
+                availableWidth, mMinFixedItemWidth);
+
+        if (tabletMode != mIsTabletMode || shiftingMode != mIsShiftingMode) {
+            switchPresentation(tabletMode, shiftingMode);
+        }
+    }
+
+    /**
+     * Swaps the container and tab Views, keeping the selected tab, colors
+     * and the user content. This runs once the new size is known, never
+     * while measuring, and lays the BottomBar out again afterwards.
+     */
+    private void switchPresentation(boolean tabletMode, boolean shiftingMode) {
+        mIsShiftingMode = shiftingMode;
+
+        if (tabletMode != mIsTabletMode) {
+            if (mShyController != null) {
+                mShyController.cancel();
+            }
+
+            if (mUserContentView != null) {
+                mUserContentContainer.removeView(mUserContentView);
+                mPendingUserContentView = mUserContentView;
+                mUserContentView = null;
+            }
+
+            mRootView.setVisibility(GONE);
+            View rootView = tabletMode ? mTabletRootView : mPhoneRootView;
+
+            if (rootView == null) {
+                addView(initializeViews(tabletMode));
+            } else {
+                useRootView(rootView, tabletMode);
+                rootView.setVisibility(VISIBLE);
+            }
+        }
+
+        if (!mIsTabletMode && mIsShiftingMode) {
+            mCurrentBackgroundColor = mModel.getSelectedBackgroundColor(mDefaultBackgroundColor);
+
+            mBackgroundView.setBackgroundColor(mCurrentBackgroundColor);
+
+            // Requesting insets in the middle of a layout would start another pass.
+            removeCallbacks(mPrepareForNavBarInsets);
+            post(mPrepareForNavBarInsets);
+        } else if (mIsDarkTheme) {
+            darkThemeMagic();
+        } else {
+            lightThemeMagic();
+        }
+
+        showTabs();
+        requestLayout();
+    }
+
+    /**
+     * Puts the tabs of the current presentation in place, reusing the tab
+     * Views it had before, and binds them to the current state.
+     */
+    private void showTabs() {
+        if (mTabRail != null && mTabRailAdapter != null) {
+            mOverflowStart = BottomBarModel.NO_POSITION;
+            mMoreTab = null;
+            mOverflowPopup = null;
+
+            restyleTabs();
+            mTabRail.scrollToPosition(mModel.getSelectedPosition());
+            return;
+        }
+
+        if (mTabRail == null && mPhoneTabsShifting != mIsShiftingMode) {
+            // The tabs of the other phone presentation go aside, and the
+            // ones kept from before come back.
+            ArrayList<View> shownTabs = new ArrayList<>(mItemContainer.getChildCount());
+
+            for (int i = 0; i < mItemContainer.getChildCount(); i++) {
+                shownTabs.add(mItemContainer.getChildAt(i));
+            }
+
+            mItemContainer.removeAllViews();
+
+            for (int i = 0; i < mSpareTabs.size(); i++) {
+                mItemContainer.addView(mSpareTabs.get(i));
+            }
+
+            mSpareTabs.clear();
+            mSpareTabs.addAll(shownTabs);
+            mPhoneTabsShifting = mIsShiftingMode;
+        }
+
+        if (mTabRail != null || mItemContainer.getChildCount() == 0) {
+            bindTabs(mItems);
+            return;
+        }
+
+        mOverflowStart = BottomBarModel.getOverflowStart(mItems.length, mMaxVisibleTabs);
+        mMoreTab = mOverflowStart != BottomBarModel.NO_POSITION ? mItemContainer.getChildAt(mOverflowStart) : null;
+        mOverflowPopup = null;
+
+        restyleTabs();
+    }
+
+    /**
+     * Sizes the phone tabs for the given width. The tabs request a layout
+     * if their width changes, so this is never called while measuring.
+     */
+    private void updateTabWidths(int availableWidth) {
+        int tabCount = mItemContainer.getChildCount();
+
+        if (tabCount == 0) {
+            return;
+        }
+
+        int proposedItemWidth = BottomBarModel.computeTabWidth(availableWidth, tabCount, mMaxFixedItemWidth);
+
+        for (int i = 0; i < tabCount; i++) {
+            View bottomBarTab = mItemContainer.getChildAt(i);
+            ViewGroup.LayoutParams params = bottomBarTab.getLayoutParams();
+
+            if (params.width != proposedItemWidth) {
+                params.width = proposedItemWidth;
+                bottomBarTab.setLayoutParams(params);
+            }
+        }
+    }
+
+    /**
+     * Takes in the styling from an editor. The tabs are restyled in one
+     * pass if they're there already, otherwise they pick the styling up
+     * when they're bound.
+     */
+    void applyEdits(BottomBarEditor editor) {
+        BottomBarTrace.beginSection(BottomBarTrace.APPLY_EDITS);
+
+        try {
+            boolean restyleTabs = false;
+            boolean changesTheme = false;
+
+            if (editor.hasActiveTabColor) {
+                restyleTabs = editor.activeTabColor != mCustomActiveTabColor;
+                mCustomActiveTabColor = editor.activeTabColor;
+
+                if (mStateHolder != null) {
+                    mStateHolder.activeTabColor = editor.activeTabColor;
+                }
+            }
+
+            if (editor.hasDarkTheme) {
+                changesTheme = editor.darkTheme != mIsDarkTheme;
+                restyleTabs |= changesTheme;
+                mIsDarkTheme = editor.darkTheme;
+
+                if (mStateHolder != null) {
+                    mStateHolder.darkTheme = editor.darkTheme;
+                }
+            }
+
+            if (editor.typeface != null) {
+                mTypeface = editor.typeface;
+                restyleTabs = true;
+            }
+
+            if (editor.textAppearance != -1) {
+                mTextAppearance = editor.textAppearance;
+                restyleTabs = true;
+            }
+
+            // Kept even when not shifting, as the presentation may change later.
+            for (int i = 0; i < editor.tabColors.size(); i++) {
+                mModel.mapColor(editor.tabColors.keyAt(i), editor.tabColors.valueAt(i));
+            }
+
+            if (mItems == null || mItems.length == 0) {
+                return;
+            }
+
+            if (!mIsTabletMode && mIsShiftingMode) {
+                int color = mModel.getSelectedBackgroundColor(mDefaultBackgroundColor);
+
+                if (color != mCurrentBackgroundColor) {
+                    mCurrentBackgroundColor = color;
+                    mBackgroundView.setBackgroundColor(color);
+                }
+            } else if (changesTheme) {
+                if (mIsDarkTheme) {
+                    darkThemeMagic();
+                } else {
+                    lightThemeMagic();
+                }
+            }
+
+            if (restyleTabs) {
+                restyleTabs();
+            }
+        } finally {
+            BottomBarTrace.endSection();
+        }
+    }
+
+    /**
+     * Binds the tabs again with the current styling. Everything about a
+     * tab is changed in the same pass, so the tabs are laid out and drawn
+     * again only once.
+     */
+    private void restyleTabs() {
+        if (mUseIconAtlas) {
+            // The old atlas is drawn in the old tints.
+            mIconAtlas = obtainIconAtlas(mItems);
+        }
+
+        if (mTabRailAdapter != null) {
+            mTabRailAdapter.notifyDataSetChanged();
+            return;
+        }
+
+        for (int index = 0; index < mItemContainer.getChildCount(); index++) {
+            View bottomBarTab = mItemContainer.getChildAt(index);
+
+            if (index == mOverflowStart) {
+                bindMoreTab(bottomBarTab);
+            } else {
+                bindTab(bottomBarTab, mItems[index], index);
+            }
+        }
+    }
+
+    private void darkThemeMagic() {
+        if (!mIsTabletMode) {
+            mBackgroundView.setBackgroundColor(mDarkBackgroundColor);
+        } else {
+            mItemContainer.setBackgroundColor(mDarkBackgroundColor);
+            mTabletRightBorder.setBackgroundColor(mTabletRightBorderDarkColor);
         }
-
-        addView(rootView);
     }
 
     /**
-     * Makes this BottomBar "shy". In other words, it hides on scroll.
+     * Brings back the colors from the layouts, when the dark theme is
+     * turned off.
      */
-    private void toughChildHood(boolean useExtraOffset) {
-        mIsShy = true;
-        mUseExtraOffset = useExtraOffset;
-    }
-
-    protected boolean isShy() {
-        return mIsShy;
-    }
-
-    protected void shyHeightAlreadyCalculated() {
-        mShyHeightAlreadyCalculated = true;
+    private void lightThemeMagic() {
+        if (!mIsTabletMode) {
+            mBackgroundView.setBackgroundColor(mWhiteColor);
+        } else {
+            mItemContainer.setBackgroundColor(mWhiteColor);
+            mTabletRightBorder.setBackgroundColor(mTabletRightBorderColor);
+        }
     }
 
-    protected boolean useExtraOffset() {
-        return mUseExtraOffset;
-    }
+    private void restoreState(Bundle savedInstanceState) {
+        if (savedInstanceState != null) {
+            int position = savedInstanceState.getInt(STATE_CURRENT_SELECTED_TAB, -1);
 
-    protected ViewGroup getUserContainer() {
-        return mUserContentContainer;
-    }
+            // Otherwise, the position comes with the View state later.
+            if (position != -1) {
+                mModel.restoreSelectedPosition(position);
+            }
 
-    protected View getOuterContainer() {
-        return mOuterContainer;
+            // The FragmentManager brings back the Fragment that was shown.
+            mIsComingFromRestoredState = true;
+            mHasRestoredFragments = true;
+        }
     }
 
-    protected boolean drawBehindNavBar() {
-        return mDrawBehindNavBar;
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState savedState = new SavedState(super.onSaveInstanceState());
+        savedState.selectedPosition = mModel.getSelectedPosition();
+        return savedState;
     }
 
-    protected boolean useTopOffset() {
-        return mUseTopOffset;
-    }
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
 
-    protected boolean useOnlyStatusbarOffset() {
-        return mUseOnlyStatusBarOffset;
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        restoreSelectedPosition(savedState.selectedPosition);
     }
 
-    @Override
-    public void onClick(View v) {
-        if (v.getTag().equals(TAG_BOTTOM_BAR_VIEW_INACTIVE)) {
-            unselectTab(findViewWithTag(TAG_BOTTOM_BAR_VIEW_ACTIVE), true);
-            selectTab(v, true);
-            updateSelectedTab(findItemPosition(v));
+    /**
+     * The View state is restored after the Activity has set the items,
+     * so the tabs are switched over without animating or telling the
+     * listeners, just as if the position had been there from the start.
+     */
+    private void restoreSelectedPosition(int position) {
+        if (mItems == null) {
+            mModel.restoreSelectedPosition(position);
+            return;
         }
-    }
 
-    private void updateSelectedTab(int newPosition) {
-        if (newPosition != mCurrentTabPosition) {
-            mCurrentTabPosition = newPosition;
+        if (position < 0 || position >= mItems.length || position == mModel.getSelectedPosition()) {
+            return;
+        }
 
-            if (mListener != null) {
-                mListener.onItemSelected(mCurrentTabPosition);
-            }
+        updateTabSelection(mModel.getSelectedPosition(), false, false);
+        mModel.restoreSelectedPosition(position);
+        updateTabSelection(position, true, false);
 
-            if (mMenuListener != null && mItems instanceof BottomBarTab[]) {
-                mMenuListener.onMenuItemSelected(((BottomBarTab) mItems[mCurrentTabPosition]).id);
-            }
+        if (mIsShiftingMode && !mIsTabletMode) {
+            mCurrentBackgroundColor = mModel.getSelectedBackgroundColor(mDefaultBackgroundColor);
+            mBackgroundView.setBackgroundColor(mCurrentBackgroundColor);
+        }
 
-            updateCurrentFragment();
+        if (mTabRail != null) {
+            mTabRail.scrollToPosition(position);
         }
-    }
 
-    @Override
-    public boolean onLongClick(View v) {
-        if ((mIsShiftingMode || mIsTabletMode) && v.getTag().equals(TAG_BOTTOM_BAR_VIEW_INACTIVE)) {
-            Toast.makeText(mContext, mItems[findItemPosition(v)].getTitle(mContext), Toast.LENGTH_SHORT).show();
+        if (mViewPager != null) {
+            syncViewPager();
+        } else if (!mHasRestoredFragments) {
+            updateCurrentFragment();
         }
 
-        return true;
+        setVisibleTab(position);
     }
 
-    private void updateItems(final BottomBarItemBase[] bottomBarItems) {
-        if (mItemContainer == null) {
-            initializeViews();
-        }
+    private void selectTab(View tab, int tabPosition, boolean animate) {
+        BottomBarTrace.beginSection(BottomBarTrace.SELECT_TAB);
 
-        int index = 0;
-        int biggestWidth = 0;
-        mIsShiftingMode = MAX_FIXED_TAB_COUNT < bottomBarItems.length;
+        try {
+            tab.setTag(TAG_BOTTOM_BAR_VIEW_ACTIVE);
+            ImageView icon = (ImageView) tab.findViewById(R.id.bb_bottom_bar_icon);
+            TextView title = (TextView) tab.findViewById(R.id.bb_bottom_bar_title);
 
-        if (!mIsTabletMode && mIsShiftingMode) {
-            mDefaultBackgroundColor = mCurrentBackgroundColor = mPrimaryColor;
-            mBackgroundView.setBackgroundColor(mDefaultBackgroundColor);
+            if (!mIsShiftingMode || mIsTabletMode) {
+                int activeColor = mCustomActiveTabColor != -1 ?
+                        mCustomActiveTabColor : mPrimaryColor;
+                tintIcon(icon, activeColor);
 
-            if (mContext instanceof Activity) {
-                navBarMagic((Activity) mContext, this);
+                if (title != null) {
+                    title.setTextColor(activeColor);
+                }
             }
-        } else if (mIsDarkTheme) {
-            darkThemeMagic();
-        }
-
-        View[] viewsToAdd = new View[bottomBarItems.length];
 
-        for (BottomBarItemBase bottomBarItemBase : bottomBarItems) {
-            int layoutResource;
+            if (mIsDarkTheme) {
+                if (title != null) {
+                    title.setAlpha(1.0f);
+                }
 
-            if (mIsShiftingMode && !mIsTabletMode) {
-                layoutResource = R.layout.bb_bottom_bar_item_shifting;
-            } else {
-                layoutResource = mIsTabletMode ?
-                        R.layout.bb_bottom_bar_item_fixed_tablet : R.layout.bb_bottom_bar_item_fixed;
+                icon.setAlpha(1.0f);
             }
 
-            View bottomBarTab = View.inflate(mContext, layoutResource, null);
-            ImageView icon = (ImageView) bottomBarTab.findViewById(R.id.bb_bottom_bar_icon);
+            if (title == null) {
+                return;
+            }
 
-            icon.setImageDrawable(bottomBarItemBase.getIcon(mContext));
+            int translationY = mIsShiftingMode ? mTenDp : mTwoDp;
 
-            if (!mIsTabletMode) {
-                TextView title = (TextView) bottomBarTab.findViewById(R.id.bb_bottom_bar_title);
-                title.setText(bottomBarItemBase.getTitle(mContext));
+            if (animate) {
+                title.animate()
+                        .setDuration(ANIMATION_DURATION)
+                        .scaleX(1)
+                        .scaleY(1)
+                        .start();
+                tab.animate()
+                        .setDuration(ANIMATION_DURATION)
+                        .translationY(-translationY)
+                        .setListener(mTransitionListener)
+                        .start();
 
-                if (mPendingTextAppearance != -1) {
-                    MiscUtils.setTextAppearance(title, mPendingTextAppearance);
+                if (mIsShiftingMode) {
+                    icon.animate()
+                            .setDuration(ANIMATION_DURATION)
+                            .alpha(1.0f)
+                            .start();
                 }
 
-                if (mPendingTypeface != null) {
-                    title.setTypeface(mPendingTypeface);
+                handleBackgroundColorChange(tabPosition, tab);
+            } else {
+                title.setScaleX(1);
+                title.setScaleY(1);
+                tab.setTranslationY(-translationY);
+
+                if (mIsShiftingMode) {
+                    icon.setAlpha(1.0f);
                 }
             }
+        } finally {
+            BottomBarTrace.endSection();
+        }
+    }
 
-            if (mIsDarkTheme || (!mIsTabletMode && mIsShiftingMode)) {
-                icon.setColorFilter(mWhiteColor);
-            }
+    private void unselectTab(View tab, boolean animate) {
+        BottomBarTrace.beginSection(BottomBarTrace.UNSELECT_TAB);
 
-            if (bottomBarItemBase instanceof BottomBarTab) {
-                bottomBarTab.setId(((BottomBarTab) bottomBarItemBase).id);
-            }
+        try {
+            tab.setTag(TAG_BOTTOM_BAR_VIEW_INACTIVE);
 
-            if (index == mCurrentTabPosition) {
-                selectTab(bottomBarTab, false);
-            } else {
-                unselectTab(bottomBarTab, false);
+            ImageView icon = (ImageView) tab.findViewById(R.id.bb_bottom_bar_icon);
+            TextView title = (TextView) tab.findViewById(R.id.bb_bottom_bar_title);
+
+            if (!mIsShiftingMode || mIsTabletMode) {
+                int inActiveColor = mIsDarkTheme ? mWhiteColor : mInActiveColor;
+                tintIcon(icon, inActiveColor);
+
+                if (title != null) {
+                    title.setTextColor(inActiveColor);
+                }
             }
 
-            if (!mIsTabletMode) {
-                if (bottomBarTab.getWidth() > biggestWidth) {
-                    biggestWidth = bottomBarTab.getWidth();
+            if (mIsDarkTheme) {
+                if (title != null) {
+                    title.setAlpha(0.6f);
                 }
 
-                viewsToAdd[index] = bottomBarTab;
-            } else {
-                mItemContainer.addView(bottomBarTab);
+                icon.setAlpha(0.6f);
             }
 
-            bottomBarTab.setOnClickListener(this);
-            bottomBarTab.setOnLongClickListener(this);
-            index++;
-        }
+            if (title == null) {
+                return;
+            }
 
-        if (!mIsTabletMode) {
-            int proposedItemWidth = Math.min(
-                    MiscUtils.dpToPixel(mContext, mScreenWidth / bottomBarItems.length),
-                    mMaxFixedItemWidth
-            );
+            float scale = mIsShiftingMode ? 0 : 0.86f;
+
+            if (animate) {
+                title.animate()
+                        .setDuration(ANIMATION_DURATION)
+                        .scaleX(scale)
+                        .scaleY(scale)
+                        .start();
+                tab.animate()
+                        .setDuration(ANIMATION_DURATION)
+                        .translationY(0)
+                        .start();
 
-            LinearLayout.LayoutParams params = new LinearLayout
-                    .LayoutParams(proposedItemWidth, LinearLayout.LayoutParams.WRAP_CONTENT);
+                if (mIsShiftingMode) {
+                    icon.animate()
+                            .setDuration(ANIMATION_DURATION)
+                            .alpha(0.6f)
+                            .start();
+                }
+            } else {
+                title.setScaleX(scale);
+                title.setScaleY(scale);
+                tab.setTranslationY(0);
 
-            for (View bottomBarView : viewsToAdd) {
-                bottomBarView.setLayoutParams(params);
-                mItemContainer.addView(bottomBarView);
+                if (mIsShiftingMode) {
+                    icon.setAlpha(0.6f);
+                }
             }
+        } finally {
+            BottomBarTrace.endSection();
         }
+    }
 
-        updateCurrentFragment();
-
-        if (mPendingTextAppearance != -1) {
-            mPendingTextAppearance = -1;
-        }
+    private void handleBackgroundColorChange(int tabPosition, View tab) {
+        if (!mIsShiftingMode || mIsTabletMode) return;
 
-        if (mPendingTypeface != null) {
-            mPendingTypeface = null;
-        }
+        handleBackgroundColorChange(tab, mModel.getBackgroundColor(tabPosition, mDefaultBackgroundColor));
     }
 
-    private void darkThemeMagic() {
-        if (!mIsTabletMode) {
-            mBackgroundView.setBackgroundColor(mDarkBackgroundColor);
-        } else {
-            mItemContainer.setBackgroundColor(mDarkBackgroundColor);
-            mTabletRightBorder.setBackgroundColor(ContextCompat.getColor(mContext, R.color.bb_tabletRightBorderDark));
+    private void handleBackgroundColorChange(View tab, int color) {
+        BottomBarTrace.beginSection(BottomBarTrace.ANIMATE_BG_COLOR_CHANGE);
+
+        try {
+            mBackgroundAnimator = MiscUtils.animateBGColorChange(tab,
+                    mBackgroundView,
+                    mBackgroundOverlay,
+                    color,
+                    mTransitionListener);
+            mCurrentBackgroundColor = color;
+        } finally {
+            BottomBarTrace.endSection();
         }
     }
 
-    private void onRestoreInstanceState(Bundle savedInstanceState) {
-        if (savedInstanceState != null) {
-            mCurrentTabPosition = savedInstanceState.getInt(STATE_CURRENT_SELECTED_TAB, -1);
+    private int findItemPosition(View viewToFind) {
+        if (viewToFind == mMoreTab) {
+            return Math.max(mModel.getSelectedPosition(), mOverflowStart);
+        }
 
-            if (mCurrentTabPosition == -1) {
-                mCurrentTabPosition = 0;
-                Log.e("BottomBar", "You must override the Activity's onSave" +
-                        "InstanceState(Bundle outState) and call BottomBar.onSaveInstanc" +
-                        "eState(outState) there to restore the state properly.");
-            }
+        int position = mTabRail != null ?
+                mTabRail.getChildAdapterPosition(viewToFind) : mItemContainer.indexOfChild(viewToFind);
 
-            mIsComingFromRestoredState = true;
-        }
+        return Math.max(position, 0);
     }
 
-    private void selectTab(View tab, boolean animate) {
-        tab.setTag(TAG_BOTTOM_BAR_VIEW_ACTIVE);
-        ImageView icon = (ImageView) tab.findViewById(R.id.bb_bottom_bar_icon);
-        TextView title = (TextView) tab.findViewById(R.id.bb_bottom_bar_title);
-
-        int tabPosition = findItemPosition(tab);
+    private void updateCurrentFragment() {
+        BottomBarTrace.beginSection(BottomBarTrace.UPDATE_CURRENT_FRAGMENT);
+
+        try {
+            if (!mIsComingFromRestoredState && mViewPager == null && mFragmentHost != null
+                    && mFragmentContainer != 0
+                    && mItems != null
+                    && mItems instanceof BottomBarFragment[]) {
+                if (mKeepsHiddenFragments) {
+                    showKeptFragment(mFragmentHost, mModel.getSelectedPosition());
+                } else {
+                    replaceFragment(mFragmentHost, (BottomBarFragment) mItems[mModel.getSelectedPosition()]);
+                }
+            }
 
-        if (!mIsShiftingMode || mIsTabletMode) {
-            int activeColor = mCustomActiveTabColor != -1 ?
-                    mCustomActiveTabColor : mPrimaryColor;
-            icon.setColorFilter(activeColor);
+            mIsComingFromRestoredState = false;
 
-            if (title != null) {
-                title.setTextColor(activeColor);
+            if (mItems != null) {
+                setVisibleTab(mModel.getSelectedPosition());
             }
+        } finally {
+            BottomBarTrace.endSection();
         }
+    }
 
-        if (mIsDarkTheme) {
-            if (title != null) {
-                title.setAlpha(1.0f);
-            }
+    private <F> void replaceFragment(FragmentHost<F> fragmentHost, BottomBarFragment item) {
+        F fragment = fragmentHost.getFragment(item);
 
-            icon.setAlpha(1.0f);
+        if (fragment == null) {
+            return;
         }
 
-        if (title == null) {
-            return;
+        fragmentHost.beginTransaction()
+                .replace(mFragmentContainer, fragment)
+                .commit();
+
+        if (mTabSwitchMetrics != null) {
+            mTabSwitchMetrics.onFragmentCommitted(fragment);
         }
+    }
 
-        int translationY = mIsShiftingMode ? mTenDp : mTwoDp;
+    /**
+     * Shows the Fragment of the tab at the given position, adding it the
+     * first time, and hides the other tabs' Fragments. The Fragments are
+     * tagged by position, so the ones the FragmentManager restores after
+     * a configuration change are found again.
+     */
+    private <F> void showKeptFragment(FragmentHost<F> fragmentHost, int position) {
+        if (mAddedFragments == null || mAddedFragments.length != mItems.length) {
+            mAddedFragments = new boolean[mItems.length];
+        }
 
-        if (animate) {
-            title.animate()
-                    .setDuration(ANIMATION_DURATION)
-                    .scaleX(1)
-                    .scaleY(1)
-                    .start();
-            tab.animate()
-                    .setDuration(ANIMATION_DURATION)
-                    .translationY(-translationY)
-                    .start();
-
-            if (mIsShiftingMode) {
-                icon.animate()
-                        .setDuration(ANIMATION_DURATION)
-                        .alpha(1.0f)
-                        .start();
-            }
+        FragmentHost.Transaction<F> transaction = fragmentHost.beginTransaction();
+        F shownFragment = null;
 
-            handleBackgroundColorChange(tabPosition, tab);
-        } else {
-            title.setScaleX(1);
-            title.setScaleY(1);
-            tab.setTranslationY(-translationY);
+        for (int i = 0; i < mItems.length; i++) {
+            F fragment = fragmentHost.findFragmentByTag(TAG_KEPT_FRAGMENT + i);
 
-            if (mIsShiftingMode) {
-                icon.setAlpha(1.0f);
+            if (fragment == null) {
+                fragment = fragmentHost.getFragment((BottomBarFragment) mItems[i]);
             }
-        }
-    }
 
-    private void unselectTab(View tab, boolean animate) {
-        tab.setTag(TAG_BOTTOM_BAR_VIEW_INACTIVE);
+            // Still being added, if the transaction hasn't run yet.
+            boolean isAdded = fragment != null && (mAddedFragments[i] || fragmentHost.isAdded(fragment));
 
-        ImageView icon = (ImageView) tab.findViewById(R.id.bb_bottom_bar_icon);
-        TextView title = (TextView) tab.findViewById(R.id.bb_bottom_bar_title);
+            if (i == position && fragment != null) {
+                if (isAdded) {
+                    transaction.show(fragment);
+                } else {
+                    transaction.add(mFragmentContainer, fragment, TAG_KEPT_FRAGMENT + i);
+                    mAddedFragments[i] = true;
+                }
 
-        if (!mIsShiftingMode || mIsTabletMode) {
-            int inActiveColor = mIsDarkTheme ? mWhiteColor : mInActiveColor;
-            icon.setColorFilter(inActiveColor);
+                shownFragment = fragment;
+            } else if (isAdded) {
+                transaction.hide(fragment);
+            }
 
-            if (title != null) {
-                title.setTextColor(inActiveColor);
+            if (fragment != null && (isAdded || i == position)) {
+                fragmentHost.setUserVisibleHint(fragment, i == position);
             }
         }
 
-        if (mIsDarkTheme) {
-            if (title != null) {
-                title.setAlpha(0.6f);
-            }
+        transaction.commit();
 
-            icon.setAlpha(0.6f);
+        if (mTabSwitchMetrics != null && shownFragment != null) {
+            mTabSwitchMetrics.onFragmentCommitted(shownFragment);
         }
+    }
 
-        if (title == null) {
-            return;
+    /**
+     * Removes the Fragments kept for the old items, so the new items
+     * don't find them by their tags.
+     */
+    private <F> void removeKeptFragments(FragmentHost<F> fragmentHost) {
+        FragmentHost.Transaction<F> transaction = fragmentHost.beginTransaction();
+
+        for (int i = 0; i < mItems.length; i++) {
+            F fragment = fragmentHost.findFragmentByTag(TAG_KEPT_FRAGMENT + i);
+
+            if (fragment != null) {
+                transaction.remove(fragment);
+            }
         }
 
-        float scale = mIsShiftingMode ? 0 : 0.86f;
+        transaction.commit();
+    }
 
-        if (animate) {
-            title.animate()
-                    .setDuration(ANIMATION_DURATION)
-                    .scaleX(scale)
-                    .scaleY(scale)
-                    .start();
-            tab.animate()
-                    .setDuration(ANIMATION_DURATION)
-                    .translationY(0)
-                    .start();
+    /**
+     * Tells the listener when the shown tab changes.
+     */
+    private void setVisibleTab(int position) {
+        if (position == mVisibleTab) {
+            return;
+        }
 
-            if (mIsShiftingMode) {
-                icon.animate()
-                        .setDuration(ANIMATION_DURATION)
-                        .alpha(0.6f)
-                        .start();
-            }
-        } else {
-            title.setScaleX(scale);
-            title.setScaleY(scale);
-            tab.setTranslationY(0);
+        int oldPosition = mVisibleTab;
+        mVisibleTab = position;
 
-            if (mIsShiftingMode) {
-                icon.setAlpha(0.6f);
-            }
+        if (mVisibilityListener == null) {
+            return;
         }
-    }
 
-    private void handleBackgroundColorChange(int tabPosition, View tab) {
-        if (!mIsShiftingMode || mIsTabletMode) return;
+        if (oldPosition != BottomBarModel.NO_POSITION) {
+            mVisibilityListener.onTabVisibilityChanged(oldPosition, false);
+        }
 
-        if (mColorMap != null && mColorMap.containsKey(tabPosition)) {
-            handleBackgroundColorChange(
-                    tab, mColorMap.get(tabPosition));
-        } else {
-            handleBackgroundColorChange(tab, mDefaultBackgroundColor);
+        if (position != BottomBarModel.NO_POSITION) {
+            mVisibilityListener.onTabVisibilityChanged(position, true);
         }
     }
 
-    private void handleBackgroundColorChange(View tab, int color) {
-        MiscUtils.animateBGColorChange(tab,
-                mBackgroundView,
-                mBackgroundOverlay,
-                color);
-        mCurrentBackgroundColor = color;
-    }
+    /**
+     * The ViewPager keeps the pages next to the selected one, which are
+     * out of sight whenever it's not scrolling. Making them invisible
+     * then stops them from drawing, and their animations from causing
+     * redraws. Only done for the pages of our own adapter, as those are
+     * the ones we know the Views of.
+     */
+    private void updateOffscreenPages() {
+        if (mPagerAdapter == null || mViewPager == null || !(mItems instanceof BottomBarFragment[])) {
+            return;
+        }
 
-    private int findItemPosition(View viewToFind) {
-        int position = 0;
+        int currentItem = mViewPager.getCurrentItem();
 
-        for (int i = 0; i < mItemContainer.getChildCount(); i++) {
-            View candidate = mItemContainer.getChildAt(i);
+        for (int i = 0; i < mItems.length; i++) {
+            android.support.v4.app.Fragment fragment = ((BottomBarFragment) mItems[i]).getSupportFragment();
+            View page = fragment != null ? fragment.getView() : null;
 
-            if (candidate.equals(viewToFind)) {
-                position = i;
-                break;
+            if (page != null) {
+                page.setVisibility(mIsPagerIdle && i != currentItem ? INVISIBLE : VISIBLE);
             }
         }
-
-        return position;
     }
 
-    private void updateCurrentFragment() {
-        if (!mIsComingFromRestoredState && mFragmentManager != null
-                && mFragmentContainer != 0
-                && mItems != null
-                && mItems instanceof BottomBarFragment[]) {
-            BottomBarFragment newFragment = ((BottomBarFragment) mItems[mCurrentTabPosition]);
+    private void clearItems() {
+        setVisibleTab(BottomBarModel.NO_POSITION);
+        mAddedFragments = null;
 
-            if (mFragmentManager instanceof android.app.FragmentManager
-                    && newFragment.getFragment() != null) {
-                ((android.app.FragmentManager) mFragmentManager).beginTransaction()
-                        .replace(mFragmentContainer, newFragment.getFragment())
-                        .commit();
-            } else if (mFragmentManager instanceof android.support.v4.app.FragmentManager
-                    && newFragment.getSupportFragment() != null) {
-                ((android.support.v4.app.FragmentManager) mFragmentManager).beginTransaction()
-                        .replace(mFragmentContainer, newFragment.getSupportFragment())
-                        .commit();
-            }
+        if (mKeepsHiddenFragments && mFragmentHost != null && mItems != null) {
+            removeKeptFragments(mFragmentHost);
         }
 
-        mIsComingFromRestoredState = false;
-    }
+        mMoreTab = null;
+        mOverflowPopup = null;
+        mIconAtlas = null;
 
-    private void clearItems() {
-        if (mItemContainer != null) {
-            int childCount = mItemContainer.getChildCount();
+        // The hierarchy that isn't shown has tabs for these items as well.
+        if (mTabletRootView != null) {
+            ((RecyclerView) mTabletRootView.findViewById(R.id.bb_bottom_bar_item_container)).setAdapter(null);
+            mTabRailAdapter = null;
+        }
 
-            if (childCount > 0) {
-                for (int i = 0; i < childCount; i++) {
-                    mItemContainer.removeView(mItemContainer.getChildAt(i));
-                }
-            }
+        if (mPhoneRootView != null) {
+            // Removing them one by one while counting up would skip every other one.
+            ((ViewGroup) mPhoneRootView.findViewById(R.id.bb_bottom_bar_item_container)).removeAllViews();
         }
 
-        if (mFragmentManager != null) {
-            mFragmentManager = null;
+        mSpareTabs.clear();
+
+        if (mFragmentHost != null) {
+            mFragmentHost = null;
         }
 
         if (mFragmentContainer != 0) {
             mFragmentContainer = 0;
         }
 
+        if (mPagerAdapter != null) {
+            if (mViewPager != null && mViewPager.getAdapter() == mPagerAdapter) {
+                mViewPager.setAdapter(null);
+            }
+
+            mPagerAdapter = null;
+        }
+
         if (mItems != null) {
             mItems = null;
         }
     }
 
-    private static void navBarMagic(Activity activity, final BottomBar bottomBar) {
-        Resources res = activity.getResources();
-        int softMenuIdentifier = res
-                .getIdentifier("config_showNavigationBar", "bool", "android");
-        int navBarIdentifier = res.getIdentifier("navigation_bar_height",
-                "dimen", "android");
-        int navBarHeight = 0;
-
-        if (navBarIdentifier > 0) {
-            navBarHeight = res.getDimensionPixelSize(navBarIdentifier);
-        }
-
-        if (!bottomBar.drawBehindNavBar()
-                || navBarHeight == 0
-                || (!(softMenuIdentifier > 0 && res.getBoolean(softMenuIdentifier))
-                && ViewConfiguration.get(activity).hasPermanentMenuKey())) {
+    /**
+     * Makes the BottomBar draw behind a translucent Navigation Bar. The
+     * actual paddings are computed from the window insets the system
+     * dispatches to us before the first layout, and updated whenever
+     * they change, so there's no need to guess whether the device
+     * has software keys or not.
+     */
+    private void prepareForNavBarInsets(Activity activity) {
+        if (!mDrawBehindNavBar
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT
+                || getResources().getConfiguration().orientation != Configuration.ORIENTATION_PORTRAIT) {
             return;
         }
 
-        /**
-         * Copy-paste coding made possible by:
-         * http://stackoverflow.com/a/14871974/940036
-         */
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            Display d = activity.getWindowManager().getDefaultDisplay();
+        activity.getWindow().getAttributes().flags |= WindowManager.LayoutParams.FLAG_TRANSLUCENT_NAVIGATION;
 
-            DisplayMetrics realDisplayMetrics = new DisplayMetrics();
-            d.getRealMetrics(realDisplayMetrics);
+        mIsDrawingBehindNavBar = true;
 
-            int realHeight = realDisplayMetrics.heightPixels;
-            int realWidth = realDisplayMetrics.widthPixels;
+        // Inside a CoordinatorLayout, only children that fit system
+        // windows get the insets dispatched to them.
+        ViewCompat.setFitsSystemWindows(this, true);
+        ViewCompat.requestApplyInsets(this);
+    }
 
-            DisplayMetrics displayMetrics = new DisplayMetrics();
-            d.getMetrics(displayMetrics);
+    /**
+     * Pre-Lollipop devices don't support OnApplyWindowInsetsListeners,
+     * so the insets are picked up here instead.
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    protected boolean fitSystemWindows(Rect insets) {
+        if (mIsDrawingBehindNavBar && Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            applySystemWindowInsets(insets.top, insets.bottom);
+            return true;
+        }
 
-            int displayHeight = displayMetrics.heightPixels;
-            int displayWidth = displayMetrics.widthPixels;
+        return super.fitSystemWindows(insets);
+    }
 
-            boolean hasSoftwareKeys = (realWidth - displayWidth) > 0
-                    || (realHeight - displayHeight) > 0;
+    private void applySystemWindowInsets(int topInset, int bottomInset) {
+        BottomBarTrace.beginSection(BottomBarTrace.APPLY_INSETS);
 
-            if (!hasSoftwareKeys) {
-                return;
+        try {
+            mTopInset = topInset;
+            mNavBarInset = bottomInset;
+
+            if (mUseTopOffset && mUserContentContainer != null) {
+                int topOffset = topInset > 0 ?
+                        topInset + (mUseOnlyStatusBarOffset ? 0 : mActionBarSize) : 0;
+                mUserContentContainer.setPadding(0, topOffset, 0, 0);
+            }
+
+            // Padding the items instead of the outer container lets the
+            // background extend behind the Navigation Bar.
+            if (mItemContainer != null) {
+                mItemContainer.setPadding(mItemContainer.getPaddingLeft(), mItemContainer.getPaddingTop(),
+                        mItemContainer.getPaddingRight(), bottomInset);
             }
+        } finally {
+            BottomBarTrace.endSection();
         }
-        /**
-         * End of delicious copy-paste code
-         */
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
-                && res.getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT) {
-            activity.getWindow().getAttributes().flags |= WindowManager.LayoutParams.FLAG_TRANSLUCENT_NAVIGATION;
+    /**
+     * Only the selected position, the rest comes from the app setting
+     * the items again.
+     */
+    public static class SavedState extends BaseSavedState {
+        int selectedPosition;
 
-            if (bottomBar.useTopOffset()) {
-                int offset;
-                int statusBarResource = res
-                        .getIdentifier("status_bar_height", "dimen", "android");
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
 
-                if (statusBarResource > 0) {
-                    offset = res.getDimensionPixelSize(statusBarResource);
-                } else {
-                    offset = MiscUtils.dpToPixel(activity, 25);
-                }
+        private SavedState(Parcel in) {
+            super(in);
+            selectedPosition = in.readInt();
+        }
 
-                if (!bottomBar.useOnlyStatusbarOffset()) {
-                    TypedValue tv = new TypedValue();
-                    if (activity.getTheme().resolveAttribute(android.R.attr.actionBarSize, tv, true)) {
-                        offset += TypedValue.complexToDimensionPixelSize(tv.data,
-                                res.getDisplayMetrics());
-                    } else {
-                        offset += MiscUtils.dpToPixel(activity, 56);
-                    }
-                }
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(selectedPosition);
+        }
 
-                bottomBar.getUserContainer().setPadding(0, offset, 0, 0);
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
             }
 
-            final View outerContainer = bottomBar.getOuterContainer();
-            final int navBarHeightCopy = navBarHeight;
-            bottomBar.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-                @SuppressWarnings("deprecation")
-                @Override
-                public void onGlobalLayout() {
-                    bottomBar.shyHeightAlreadyCalculated();
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 
-                    int newHeight = outerContainer.getHeight() + navBarHeightCopy;
-                    outerContainer.getLayoutParams().height = newHeight;
+    /**
+     * Pages between the Fragments of {@link BottomBarFragment} items.
+     */
+    private static class TabFragmentPagerAdapter extends android.support.v4.app.FragmentPagerAdapter {
+        private final BottomBarFragment[] mFragmentItems;
 
-                    if (bottomBar.isShy()) {
-                        int defaultOffset = bottomBar.useExtraOffset() ? navBarHeightCopy : 0;
-                        bottomBar.setTranslationY(defaultOffset);
-                        ((CoordinatorLayout.LayoutParams) bottomBar.getLayoutParams())
-                                .setBehavior(new BottomNavigationBehavior(newHeight, defaultOffset));
-                    }
+        TabFragmentPagerAdapter(android.support.v4.app.FragmentManager fragmentManager,
+                                BottomBarFragment[] fragmentItems) {
+            super(fragmentManager);
+            mFragmentItems = fragmentItems;
+        }
 
-                    ViewTreeObserver obs = outerContainer.getViewTreeObserver();
+        @Override
+        public android.support.v4.app.Fragment getItem(int position) {
+            return mFragmentItems[position].getSupportFragment();
+        }
 
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-                        obs.removeOnGlobalLayoutListener(this);
-                    } else {
-                        obs.removeGlobalOnLayoutListener(this);
-                    }
-                }
-            });
+        @Override
+        public int getCount() {
+            return mFragmentItems.length;
+        }
+    }
+
+    /**
+     * Binds the tabs of the tablet rail by their position, from the same
+     * state as the phone layouts.
+     */
+    private class TabRailAdapter extends RecyclerView.Adapter<TabHolder> {
+        @Override
+        public TabHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            View bottomBarTab = createTabView();
+            bottomBarTab.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return new TabHolder(bottomBarTab);
+        }
+
+        @Override
+        public void onBindViewHolder(TabHolder holder, int position) {
+            BottomBarTrace.beginSection(BottomBarTrace.BIND_TAB);
+
+            try {
+                bindTab(holder.itemView, mItems[position], position);
+            } finally {
+                BottomBarTrace.endSection();
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return mItems != null ? mItems.length : 0;
+        }
+    }
+
+    private static class TabHolder extends RecyclerView.ViewHolder {
+        TabHolder(View itemView) {
+            super(itemView);
         }
     }
 }
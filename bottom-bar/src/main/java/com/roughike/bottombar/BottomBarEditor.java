@@ -0,0 +1,138 @@
+package com.roughike.bottombar;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.support.annotation.StyleRes;
+import android.util.SparseIntArray;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Collects styling changes for a {@link BottomBar}, and applies them
+ * all at once with {@link #apply()}. The tabs are then restyled in a
+ * single pass, instead of once for every change.
+ * <p/>
+ * The changes can be applied before or after the items are set, with
+ * the same result.
+ */
+public final class BottomBarEditor {
+    private final BottomBar mBottomBar;
+
+    final SparseIntArray tabColors = new SparseIntArray();
+
+    boolean hasActiveTabColor;
+    int activeTabColor;
+
+    boolean hasDarkTheme;
+    boolean darkTheme;
+
+    Typeface typeface;
+    int textAppearance = -1;
+
+    BottomBarEditor(BottomBar bottomBar) {
+        mBottomBar = bottomBar;
+    }
+
+    /**
+     * Map a background color for a Tab, that changes the whole BottomBar
+     * background color when the Tab is selected.
+     *
+     * @param tabPosition zero-based index for the tab.
+     * @param color       a hex color for the tab, such as 0xFF00FF00.
+     */
+    public BottomBarEditor mapColorForTab(int tabPosition, int color) {
+        if (tabPosition < 0) {
+            throw new IndexOutOfBoundsException("Cant map color for Tab index " + tabPosition + ".");
+        }
+
+        tabColors.put(tabPosition, color);
+        return this;
+    }
+
+    /**
+     * Map a background color for a Tab, that changes the whole BottomBar
+     * background color when the Tab is selected.
+     *
+     * @param tabPosition zero-based index for the tab.
+     * @param color       a hex color for the tab, such as "#00FF000".
+     */
+    public BottomBarEditor mapColorForTab(int tabPosition, String color) {
+        return mapColorForTab(tabPosition, Color.parseColor(color));
+    }
+
+    /**
+     * Set a custom color for an active tab when there's three
+     * or less items.
+     *
+     * @param activeTabColor a hex color used for active tabs, such as 0xFF00FF00.
+     */
+    public BottomBarEditor setActiveTabColor(int activeTabColor) {
+        this.activeTabColor = activeTabColor;
+        hasActiveTabColor = true;
+        return this;
+    }
+
+    /**
+     * Set a custom color for an active tab when there's three
+     * or less items.
+     *
+     * @param activeTabColor a hex color used for active tabs, such as "#00FF000".
+     */
+    public BottomBarEditor setActiveTabColor(String activeTabColor) {
+        return setActiveTabColor(Color.parseColor(activeTabColor));
+    }
+
+    /**
+     * Use dark theme instead of the light one.
+     *
+     * @param darkThemeEnabled whether the dark the should be enabled or not.
+     */
+    public BottomBarEditor useDarkTheme(boolean darkThemeEnabled) {
+        darkTheme = darkThemeEnabled;
+        hasDarkTheme = true;
+        return this;
+    }
+
+    /**
+     * Set a custom TypeFace for the tab titles.
+     * The .ttf file should be located at "/src/main/assets".
+     *
+     * @param typeFacePath path for the custom typeface in the assets directory.
+     */
+    public BottomBarEditor setTypeFace(String typeFacePath) {
+        typeface = Typeface.createFromAsset(mBottomBar.getContext().getAssets(), typeFacePath);
+        return this;
+    }
+
+    /**
+     * Set a custom text appearance for the tab title.
+     *
+     * @param resId path to the custom text appearance.
+     */
+    public BottomBarEditor setTextAppearance(@StyleRes int resId) {
+        textAppearance = resId;
+        return this;
+    }
+
+    /**
+     * Applies all the changes made with this editor.
+     */
+    public void apply() {
+        mBottomBar.applyEdits(this);
+    }
+}
@@ -18,6 +18,7 @@
 package com.roughike.bottombar;
 
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.StringRes;
@@ -90,6 +91,18 @@ public class BottomBarFragment extends BottomBarItemBase {
         this.titleResource = titleResource;
     }
 
+    /**
+     * Creates a new Tab for the BottomBar, with an icon that's loaded in the background.
+     * @param fragment a Fragment to be shown when this Tab is selected.
+     * @param iconUri a file or content URI for the Tab icon.
+     * @param title title for the Tab.
+     */
+    public BottomBarFragment(android.app.Fragment fragment, @NonNull Uri iconUri, @NonNull String title) {
+        this.fragment = fragment;
+        this.iconUri = checkIconUri(iconUri);
+        this.title = title;
+    }
+
 
     /**
      * Creates a new Tab for the BottomBar.
@@ -139,6 +152,18 @@ public class BottomBarFragment extends BottomBarItemBase {
         this.titleResource = titleResource;
     }
 
+    /**
+     * Creates a new Tab for the BottomBar, with an icon that's loaded in the background.
+     * @param fragment a Fragment to be shown when this Tab is selected.
+     * @param iconUri a file or content URI for the Tab icon.
+     * @param title title for the Tab.
+     */
+    public BottomBarFragment(android.support.v4.app.Fragment fragment, @NonNull Uri iconUri, @NonNull String title) {
+        this.supportFragment = fragment;
+        this.iconUri = checkIconUri(iconUri);
+        this.title = title;
+    }
+
     protected android.app.Fragment getFragment() {
         return fragment;
     }
@@ -19,6 +19,7 @@ package com.roughike.bottombar;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.support.v4.content.ContextCompat;
 
 /*
@@ -40,6 +41,7 @@ import android.support.v4.content.ContextCompat;
 class BottomBarItemBase {
     protected int iconResource;
     protected Drawable icon;
+    protected Uri iconUri;
     protected int titleResource;
     protected String title;
     protected int color;
@@ -52,6 +54,19 @@ class BottomBarItemBase {
         }
     }
 
+    /**
+     * Icons from URIs are loaded in the background, so the tab shows
+     * a placeholder until then.
+     */
+    static Uri checkIconUri(Uri iconUri) {
+        if (!IconLoader.isSupported(iconUri)) {
+            throw new IllegalArgumentException("Can't load a tab icon from " + iconUri
+                    + ". Only file, content and android.resource URIs are supported.");
+        }
+
+        return iconUri;
+    }
+
     protected String getTitle(Context context) {
         if (this.titleResource != 0) {
             return context.getString(this.titleResource);
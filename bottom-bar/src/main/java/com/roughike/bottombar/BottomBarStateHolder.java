@@ -0,0 +1,104 @@
+package com.roughike.bottombar;
+
+import android.app.Activity;
+import android.app.Fragment;
+import android.app.FragmentManager;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.util.SparseArray;
+
+import com.roughike.bottombar.core.BottomBarModel;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A headless, retained Fragment that keeps the already built parts of a
+ * BottomBar around on configuration changes. Used by
+ * {@link BottomBar#attachRetained(Activity, Bundle)}.
+ * <p/>
+ * Never holds on to Views, Contexts or Drawables that were attached to
+ * a View, only their constant states, so the old Activity can't leak.
+ */
+public class BottomBarStateHolder extends Fragment {
+    private static final String TAG = "BottomBarStateHolder";
+
+    ResolvedResources resources;
+    final SparseArray<Drawable.ConstantState> icons = new SparseArray<>();
+
+    int menuResource;
+    int[] menuItemIds;
+    String[] menuItemTitles;
+    Drawable.ConstantState[] menuItemIcons;
+
+    BottomBarModel model;
+    int activeTabColor = -1;
+    boolean darkTheme;
+
+    public BottomBarStateHolder() {
+        setRetainInstance(true);
+    }
+
+    static BottomBarStateHolder getOrCreate(Activity activity) {
+        FragmentManager fragmentManager = activity.getFragmentManager();
+        BottomBarStateHolder holder = (BottomBarStateHolder) fragmentManager.findFragmentByTag(TAG);
+
+        if (holder == null) {
+            holder = new BottomBarStateHolder();
+            fragmentManager.beginTransaction()
+                    .add(holder, TAG)
+                    .commit();
+        }
+
+        return holder;
+    }
+
+    /**
+     * Rebuilds the tabs from a previously inflated menu resource.
+     *
+     * @param menuRes the menu resource the tabs should be inflated from.
+     * @return the tabs, or null if the menu isn't retained.
+     */
+    BottomBarTab[] getMenuItems(int menuRes) {
+        if (menuRes != menuResource || menuItemIds == null) {
+            return null;
+        }
+
+        BottomBarTab[] tabs = new BottomBarTab[menuItemIds.length];
+
+        for (int i = 0; i < tabs.length; i++) {
+            Drawable icon = menuItemIcons[i] != null ? menuItemIcons[i].newDrawable() : null;
+            tabs[i] = new BottomBarTab(icon, menuItemTitles[i]);
+            tabs[i].id = menuItemIds[i];
+        }
+
+        return tabs;
+    }
+
+    void retainMenuItems(int menuRes, BottomBarTab[] tabs) {
+        menuResource = menuRes;
+        menuItemIds = new int[tabs.length];
+        menuItemTitles = new String[tabs.length];
+        menuItemIcons = new Drawable.ConstantState[tabs.length];
+
+        for (int i = 0; i < tabs.length; i++) {
+            menuItemIds[i] = tabs[i].id;
+            menuItemTitles[i] = tabs[i].title;
+            menuItemIcons[i] = tabs[i].icon != null ? tabs[i].icon.getConstantState() : null;
+        }
+    }
+}
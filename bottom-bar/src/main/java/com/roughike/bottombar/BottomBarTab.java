@@ -1,6 +1,7 @@
 package com.roughike.bottombar;
 
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.StringRes;
@@ -56,6 +57,30 @@ public class BottomBarTab extends BottomBarItemBase {
         this.titleResource = titleResource;
     }
 
+    /**
+     * Creates a new Tab for the BottomBar, with an icon that's loaded
+     * in the background. The BottomBar shows a placeholder until then.
+     *
+     * @param iconUri a file or content URI for the Tab icon.
+     * @param title   title for the Tab.
+     */
+    public BottomBarTab(@NonNull Uri iconUri, @NonNull String title) {
+        this.iconUri = checkIconUri(iconUri);
+        this.title = title;
+    }
+
+    /**
+     * Creates a new Tab for the BottomBar, with an icon that's loaded
+     * in the background. The BottomBar shows a placeholder until then.
+     *
+     * @param iconUri       a file or content URI for the Tab icon.
+     * @param titleResource resource for the title.
+     */
+    public BottomBarTab(@NonNull Uri iconUri, @StringRes int titleResource) {
+        this.iconUri = checkIconUri(iconUri);
+        this.titleResource = titleResource;
+    }
+
     /**
      * Creates a new Tab for the BottomBar.
      *
@@ -0,0 +1,144 @@
+package com.roughike.bottombar;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.View;
+import android.widget.LinearLayout;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * The root View of a single tab. Draws the badge on top of the icon by
+ * itself, so changing the count never needs extra Views or a layout pass.
+ */
+public class BottomBarTabView extends LinearLayout {
+    private static final int MAX_BADGE_COUNT = 99;
+
+    private View mIcon;
+    private int mBadgeCount;
+
+    // Written in place, so changing the count allocates nothing. Fits "99+".
+    private final char[] mBadgeText = new char[3];
+    private int mBadgeTextLength;
+
+    private Paint mBadgePaint;
+    private Paint mBadgeTextPaint;
+    private final RectF mBadgeBounds = new RectF();
+    private float mBadgeMinRadius;
+    private float mBadgePadding;
+    private float mBadgeTextWidth;
+
+    public BottomBarTabView(Context context) {
+        super(context);
+    }
+
+    public BottomBarTabView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public BottomBarTabView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+        mIcon = findViewById(R.id.bb_bottom_bar_icon);
+    }
+
+    /**
+     * Set the count shown in the badge. Must be called on the main thread.
+     *
+     * @param count the count to show, or zero to hide the badge.
+     */
+    void setBadgeCount(int count) {
+        if (count == mBadgeCount) {
+            return;
+        }
+
+        mBadgeCount = count;
+
+        if (count > 0) {
+            ensureBadgePaints();
+            updateBadgeText(count);
+            mBadgeTextWidth = mBadgeTextPaint.measureText(mBadgeText, 0, mBadgeTextLength);
+        }
+
+        invalidate();
+    }
+
+    private void updateBadgeText(int count) {
+        int shown = Math.min(count, MAX_BADGE_COUNT);
+        mBadgeTextLength = 0;
+
+        if (shown >= 10) {
+            mBadgeText[mBadgeTextLength++] = (char) ('0' + shown / 10);
+        }
+
+        mBadgeText[mBadgeTextLength++] = (char) ('0' + shown % 10);
+
+        if (count > MAX_BADGE_COUNT) {
+            mBadgeText[mBadgeTextLength++] = '+';
+        }
+    }
+
+    int getBadgeCount() {
+        return mBadgeCount;
+    }
+
+    private void ensureBadgePaints() {
+        if (mBadgePaint != null) {
+            return;
+        }
+
+        mBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBadgePaint.setColor(ContextCompat.getColor(getContext(), R.color.bb_badgeBackgroundColor));
+
+        mBadgeTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBadgeTextPaint.setColor(ContextCompat.getColor(getContext(), R.color.white));
+        mBadgeTextPaint.setTextAlign(Paint.Align.CENTER);
+        mBadgeTextPaint.setTextSize(getResources().getDisplayMetrics().scaledDensity * 10);
+
+        mBadgeMinRadius = MiscUtils.dpToPixel(getContext(), 8);
+        mBadgePadding = MiscUtils.dpToPixel(getContext(), 4);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+
+        if (mBadgeCount <= 0 || mIcon == null) {
+            return;
+        }
+
+        float halfWidth = Math.max(mBadgeMinRadius, mBadgeTextWidth / 2 + mBadgePadding);
+        float centerX = mIcon.getRight();
+        float centerY = mIcon.getTop() + mBadgeMinRadius / 2;
+
+        mBadgeBounds.set(centerX - halfWidth, centerY - mBadgeMinRadius,
+                centerX + halfWidth, centerY + mBadgeMinRadius);
+        canvas.drawRoundRect(mBadgeBounds, mBadgeMinRadius, mBadgeMinRadius, mBadgePaint);
+
+        float textY = centerY - (mBadgeTextPaint.descent() + mBadgeTextPaint.ascent()) / 2;
+        canvas.drawText(mBadgeText, 0, mBadgeTextLength, centerX, textY, mBadgeTextPaint);
+    }
+}
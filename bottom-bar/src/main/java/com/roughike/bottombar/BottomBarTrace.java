@@ -0,0 +1,123 @@
+package com.roughike.bottombar;
+
+import android.os.Build;
+import android.support.v4.os.TraceCompat;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Named sections for systrace. Everything is behind a single static
+ * flag, so when tracing is off, each call costs one field read.
+ * <p/>
+ * The async slices use the hidden methods of {@link android.os.Trace},
+ * looked up once by reflection. If they're not there, async slices are
+ * silently skipped and the normal sections still work.
+ */
+final class BottomBarTrace {
+    private static final String TAG = "BottomBarTrace";
+
+    // Same as the hidden Trace.TRACE_TAG_APP.
+    private static final long TRACE_TAG_APP = 1L << 12;
+
+    static final String ATTACH = "BottomBar#attach";
+    static final String INITIALIZE_VIEWS = "BottomBar#initializeViews";
+    static final String UPDATE_ITEMS = "BottomBar#updateItems";
+    static final String BIND_TAB = "BottomBar#bindTab";
+    static final String BUILD_ICON_ATLAS = "BottomBar#buildIconAtlas";
+    static final String APPLY_EDITS = "BottomBar#applyEdits";
+    static final String APPLY_INSETS = "BottomBar#applySystemWindowInsets";
+    static final String SELECT_TAB = "BottomBar#selectTab";
+    static final String UNSELECT_TAB = "BottomBar#unselectTab";
+    static final String UPDATE_CURRENT_FRAGMENT = "BottomBar#updateCurrentFragment";
+    static final String ANIMATE_BG_COLOR_CHANGE = "BottomBar#animateBGColorChange";
+    static final String TAB_SWITCH = "BottomBar#tabSwitch";
+
+    static boolean sEnabled;
+
+    private static boolean sAsyncMethodsResolved;
+    private static Method sAsyncTraceBegin;
+    private static Method sAsyncTraceEnd;
+
+    private BottomBarTrace() {
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    static void beginSection(String sectionName) {
+        if (sEnabled) {
+            TraceCompat.beginSection(sectionName);
+        }
+    }
+
+    static void endSection() {
+        if (sEnabled) {
+            TraceCompat.endSection();
+        }
+    }
+
+    static void beginAsyncSection(String sectionName, int cookie) {
+        if (sEnabled) {
+            invokeAsync(true, sectionName, cookie);
+        }
+    }
+
+    static void endAsyncSection(String sectionName, int cookie) {
+        if (sEnabled) {
+            invokeAsync(false, sectionName, cookie);
+        }
+    }
+
+    private static void invokeAsync(boolean begin, String sectionName, int cookie) {
+        if (!sAsyncMethodsResolved) {
+            resolveAsyncMethods();
+        }
+
+        Method method = begin ? sAsyncTraceBegin : sAsyncTraceEnd;
+
+        if (method == null) {
+            return;
+        }
+
+        try {
+            method.invoke(null, TRACE_TAG_APP, sectionName, cookie);
+        } catch (Exception e) {
+            Log.w(TAG, "Async trace sections are not available.", e);
+            sAsyncTraceBegin = null;
+            sAsyncTraceEnd = null;
+        }
+    }
+
+    private static void resolveAsyncMethods() {
+        sAsyncMethodsResolved = true;
+
+        try {
+            Class<?> trace = Class.forName("android.os.Trace");
+            sAsyncTraceBegin = trace.getMethod("asyncTraceBegin", long.class, String.class, int.class);
+            sAsyncTraceEnd = trace.getMethod("asyncTraceEnd", long.class, String.class, int.class);
+        } catch (Exception e) {
+            Log.w(TAG, "Async trace sections are not available.", e);
+            sAsyncTraceBegin = null;
+            sAsyncTraceEnd = null;
+        }
+    }
+}
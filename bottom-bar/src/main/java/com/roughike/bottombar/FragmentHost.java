@@ -0,0 +1,220 @@
+package com.roughike.bottombar;
+
+import android.os.Build;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * The few FragmentManager operations the BottomBar needs, so the same
+ * code handles both the platform and the support Fragments.
+ *
+ * @param <F> the type of Fragment the FragmentManager handles.
+ */
+interface FragmentHost<F> {
+    interface Transaction<F> {
+        Transaction<F> add(int containerId, F fragment, String tag);
+
+        Transaction<F> replace(int containerId, F fragment);
+
+        Transaction<F> show(F fragment);
+
+        Transaction<F> hide(F fragment);
+
+        Transaction<F> remove(F fragment);
+
+        void commit();
+    }
+
+    /**
+     * @return the Fragment of the item, or null if it has one of the other type.
+     */
+    F getFragment(BottomBarFragment item);
+
+    F findFragmentById(int id);
+
+    F findFragmentByTag(String tag);
+
+    boolean isAdded(F fragment);
+
+    void setUserVisibleHint(F fragment, boolean isVisibleToUser);
+
+    Transaction<F> beginTransaction();
+
+    final class Platform implements FragmentHost<android.app.Fragment> {
+        private final android.app.FragmentManager mFragmentManager;
+
+        Platform(android.app.FragmentManager fragmentManager) {
+            mFragmentManager = fragmentManager;
+        }
+
+        @Override
+        public android.app.Fragment getFragment(BottomBarFragment item) {
+            return item.getFragment();
+        }
+
+        @Override
+        public android.app.Fragment findFragmentById(int id) {
+            return mFragmentManager.findFragmentById(id);
+        }
+
+        @Override
+        public android.app.Fragment findFragmentByTag(String tag) {
+            return mFragmentManager.findFragmentByTag(tag);
+        }
+
+        @Override
+        public boolean isAdded(android.app.Fragment fragment) {
+            return fragment.isAdded();
+        }
+
+        @Override
+        public void setUserVisibleHint(android.app.Fragment fragment, boolean isVisibleToUser) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+                fragment.setUserVisibleHint(isVisibleToUser);
+            }
+        }
+
+        @Override
+        public Transaction<android.app.Fragment> beginTransaction() {
+            final android.app.FragmentTransaction transaction = mFragmentManager.beginTransaction();
+
+            return new Transaction<android.app.Fragment>() {
+                @Override
+                public Transaction<android.app.Fragment> add(int containerId, android.app.Fragment fragment,
+                                                             String tag) {
+                    transaction.add(containerId, fragment, tag);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.app.Fragment> replace(int containerId, android.app.Fragment fragment) {
+                    transaction.replace(containerId, fragment);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.app.Fragment> show(android.app.Fragment fragment) {
+                    transaction.show(fragment);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.app.Fragment> hide(android.app.Fragment fragment) {
+                    transaction.hide(fragment);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.app.Fragment> remove(android.app.Fragment fragment) {
+                    transaction.remove(fragment);
+                    return this;
+                }
+
+                @Override
+                public void commit() {
+                    transaction.commit();
+                }
+            };
+        }
+    }
+
+    final class Support implements FragmentHost<android.support.v4.app.Fragment> {
+        private final android.support.v4.app.FragmentManager mFragmentManager;
+
+        Support(android.support.v4.app.FragmentManager fragmentManager) {
+            mFragmentManager = fragmentManager;
+        }
+
+        /**
+         * The ViewPager's adapter needs the FragmentManager itself.
+         */
+        android.support.v4.app.FragmentManager getFragmentManager() {
+            return mFragmentManager;
+        }
+
+        @Override
+        public android.support.v4.app.Fragment getFragment(BottomBarFragment item) {
+            return item.getSupportFragment();
+        }
+
+        @Override
+        public android.support.v4.app.Fragment findFragmentById(int id) {
+            return mFragmentManager.findFragmentById(id);
+        }
+
+        @Override
+        public android.support.v4.app.Fragment findFragmentByTag(String tag) {
+            return mFragmentManager.findFragmentByTag(tag);
+        }
+
+        @Override
+        public boolean isAdded(android.support.v4.app.Fragment fragment) {
+            return fragment.isAdded();
+        }
+
+        @Override
+        public void setUserVisibleHint(android.support.v4.app.Fragment fragment, boolean isVisibleToUser) {
+            fragment.setUserVisibleHint(isVisibleToUser);
+        }
+
+        @Override
+        public Transaction<android.support.v4.app.Fragment> beginTransaction() {
+            final android.support.v4.app.FragmentTransaction transaction = mFragmentManager.beginTransaction();
+
+            return new Transaction<android.support.v4.app.Fragment>() {
+                @Override
+                public Transaction<android.support.v4.app.Fragment> add(int containerId,
+                                                                        android.support.v4.app.Fragment fragment,
+                                                                        String tag) {
+                    transaction.add(containerId, fragment, tag);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.support.v4.app.Fragment> replace(int containerId,
+                                                                            android.support.v4.app.Fragment fragment) {
+                    transaction.replace(containerId, fragment);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.support.v4.app.Fragment> show(android.support.v4.app.Fragment fragment) {
+                    transaction.show(fragment);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.support.v4.app.Fragment> hide(android.support.v4.app.Fragment fragment) {
+                    transaction.hide(fragment);
+                    return this;
+                }
+
+                @Override
+                public Transaction<android.support.v4.app.Fragment> remove(android.support.v4.app.Fragment fragment) {
+                    transaction.remove(fragment);
+                    return this;
+                }
+
+                @Override
+                public void commit() {
+                    transaction.commit();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.roughike.bottombar;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.v4.util.LruCache;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * All the tab icons drawn once, in both their active and inactive tints,
+ * into a single bitmap. The tabs then draw their part of it, so vector
+ * icons aren't rendered again on every tint change, and there's only
+ * one texture to upload.
+ * <p/>
+ * Each icon takes a column, with the active tint above the inactive one.
+ * When both tints are the same, as in the shifting mode, each icon is
+ * drawn only once and both tints share it. Icons are drawn at their
+ * intrinsic size, which is the size the tabs show them at.
+ */
+final class IconAtlas {
+    private static final int MAX_COLUMNS = 8;
+
+    // Atlases of resource icons can be shared by every BottomBar with the
+    // same icons and tints. Only touched on the main thread.
+    private static final LruCache<String, IconAtlas> sCache = new LruCache<>(4);
+
+    private final Bitmap mBitmap;
+    private final int mActiveTint;
+    private final int mInactiveTint;
+    private final int mCellSize;
+    private final int mColumns;
+    private final int mTintRows;
+    private final int[] mWidths;
+    private final int[] mHeights;
+
+    private IconAtlas(Bitmap bitmap, int activeTint, int inactiveTint, int cellSize, int columns,
+                      int tintRows, int[] widths, int[] heights) {
+        mBitmap = bitmap;
+        mActiveTint = activeTint;
+        mInactiveTint = inactiveTint;
+        mCellSize = cellSize;
+        mColumns = columns;
+        mTintRows = tintRows;
+        mWidths = widths;
+        mHeights = heights;
+    }
+
+    /**
+     * Returns an atlas for the icons of the items, drawing it if there
+     * isn't one already.
+     *
+     * @return the atlas, or null if some icon can't be drawn up front,
+     * such as one that's loaded from a URI.
+     */
+    static IconAtlas obtain(Context context, BottomBarItemBase[] items, int activeTint,
+                            int inactiveTint, int fallbackSize) {
+        String key = cacheKey(context, items, activeTint, inactiveTint);
+        IconAtlas atlas = key != null ? sCache.get(key) : null;
+
+        if (atlas != null) {
+            return atlas;
+        }
+
+        Drawable[] icons = new Drawable[items.length];
+
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].iconUri != null) {
+                return null;
+            }
+
+            Drawable icon = items[i].getIcon(context);
+
+            if (icon == null) {
+                return null;
+            }
+
+            // Tinting the atlas must not tint the drawable the app gave us.
+            Drawable.ConstantState state = icon.getConstantState();
+            icons[i] = (state != null ? state.newDrawable(context.getResources()) : icon).mutate();
+        }
+
+        atlas = draw(icons, activeTint, inactiveTint, fallbackSize);
+
+        if (key != null) {
+            sCache.put(key, atlas);
+        }
+
+        return atlas;
+    }
+
+    /**
+     * Only atlases of resource icons can be found again, as there's no
+     * telling whether two Drawables look the same.
+     */
+    private static String cacheKey(Context context, BottomBarItemBase[] items, int activeTint, int inactiveTint) {
+        StringBuilder key = new StringBuilder();
+
+        for (BottomBarItemBase item : items) {
+            if (item.iconResource == 0) {
+                return null;
+            }
+
+            key.append(item.iconResource).append(',');
+        }
+
+        return key.append(activeTint).append(',')
+                .append(inactiveTint).append(',')
+                .append(context.getResources().getDisplayMetrics().densityDpi)
+                .toString();
+    }
+
+    private static IconAtlas draw(Drawable[] icons, int activeTint, int inactiveTint, int fallbackSize) {
+        int count = icons.length;
+        int[] widths = new int[count];
+        int[] heights = new int[count];
+        int cellSize = 1;
+
+        for (int i = 0; i < count; i++) {
+            widths[i] = icons[i].getIntrinsicWidth() > 0 ? icons[i].getIntrinsicWidth() : fallbackSize;
+            heights[i] = icons[i].getIntrinsicHeight() > 0 ? icons[i].getIntrinsicHeight() : fallbackSize;
+            cellSize = Math.max(cellSize, Math.max(widths[i], heights[i]));
+        }
+
+        int columns = Math.max(1, Math.min(count, MAX_COLUMNS));
+        int rows = (count + columns - 1) / columns;
+        int tintRows = activeTint == inactiveTint ? 1 : 2;
+
+        Bitmap bitmap = Bitmap.createBitmap(columns * cellSize, rows * tintRows * cellSize,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        for (int i = 0; i < count; i++) {
+            int left = (i % columns) * cellSize;
+            int top = (i / columns) * tintRows * cellSize;
+
+            drawIcon(canvas, icons[i], activeTint, left, top, widths[i], heights[i]);
+
+            if (tintRows == 2) {
+                drawIcon(canvas, icons[i], inactiveTint, left, top + cellSize, widths[i], heights[i]);
+            }
+        }
+
+        return new IconAtlas(bitmap, activeTint, inactiveTint, cellSize, columns, tintRows, widths, heights);
+    }
+
+    private static void drawIcon(Canvas canvas, Drawable icon, int tint, int left, int top, int width, int height) {
+        // The same mode ImageView.setColorFilter(int) uses.
+        icon.setColorFilter(tint, PorterDuff.Mode.SRC_ATOP);
+        icon.setBounds(left, top, left + width, top + height);
+        icon.draw(canvas);
+    }
+
+    Icon newIcon(int index) {
+        return new Icon(this, index);
+    }
+
+    /**
+     * Draws one icon from the atlas, in either tint.
+     */
+    static final class Icon extends Drawable {
+        private final IconAtlas mAtlas;
+        private final int mIndex;
+        private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        private final Rect mSource = new Rect();
+
+        private Icon(IconAtlas atlas, int index) {
+            mAtlas = atlas;
+            mIndex = index;
+            setInactive(false);
+        }
+
+        /**
+         * Switches to the part of the atlas drawn in the given tint.
+         *
+         * @return false if the atlas doesn't have the tint, in which
+         * case nothing changes.
+         */
+        boolean showTint(int tint) {
+            if (tint == mAtlas.mActiveTint) {
+                setInactive(false);
+                return true;
+            } else if (tint == mAtlas.mInactiveTint) {
+                setInactive(true);
+                return true;
+            }
+
+            return false;
+        }
+
+        private void setInactive(boolean inactive) {
+            int left = (mIndex % mAtlas.mColumns) * mAtlas.mCellSize;
+            int top = (mIndex / mAtlas.mColumns) * mAtlas.mTintRows * mAtlas.mCellSize
+                    + (inactive && mAtlas.mTintRows == 2 ? mAtlas.mCellSize : 0);
+
+            if (mSource.left != left || mSource.top != top || mSource.isEmpty()) {
+                mSource.set(left, top, left + mAtlas.mWidths[mIndex], top + mAtlas.mHeights[mIndex]);
+                invalidateSelf();
+            }
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+            canvas.drawBitmap(mAtlas.mBitmap, mSource, getBounds(), mPaint);
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return mAtlas.mWidths[mIndex];
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return mAtlas.mHeights[mIndex];
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+            mPaint.setAlpha(alpha);
+            invalidateSelf();
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+            mPaint.setColorFilter(colorFilter);
+            invalidateSelf();
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.roughike.bottombar;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Loads tab icons from file and content URIs off the main thread.
+ * The icons are decoded straight to the size they're shown at, and kept
+ * both in memory and as pre-scaled files on disk, so an icon is decoded
+ * from the original only once.
+ *
+ * The disk cache revalidates file URIs by their last modified time, so an
+ * icon file that's rewritten in place is decoded again. Content and
+ * resource URIs can't be checked cheaply, so they're cached by URI for
+ * good: give a changed icon a new URI. The memory cache lasts for the
+ * process, whatever the scheme.
+ */
+final class IconLoader {
+    interface Callback {
+        /**
+         * Called on the main thread.
+         *
+         * @param bitmap the icon, or null if it couldn't be loaded.
+         */
+        void onIconLoaded(Bitmap bitmap);
+    }
+
+    private static final String TAG = "BottomBar";
+    private static final String DISK_CACHE_DIR = "bottombar-icons";
+    private static final long MAX_DISK_CACHE_SIZE = 2 * 1024 * 1024;
+    private static final int MAX_MEMORY_CACHE_SIZE = 2 * 1024 * 1024;
+    private static final int THREAD_COUNT = 2;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static IconLoader sInstance;
+
+    private final ContentResolver mContentResolver;
+    private final File mDiskCacheDir;
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final ThreadPoolExecutor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Callbacks for the icons being loaded, only touched on the main thread.
+    private final HashMap<String, ArrayList<Callback>> mPending = new HashMap<>();
+
+    static synchronized IconLoader get(Context context) {
+        if (sInstance == null) {
+            sInstance = new IconLoader(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private IconLoader(Context context) {
+        mContentResolver = context.getContentResolver();
+        mDiskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+
+        int memoryCacheSize = (int) Math.min(Runtime.getRuntime().maxMemory() / 64, MAX_MEMORY_CACHE_SIZE);
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+
+        mExecutor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT,
+                THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "BottomBar icons #" + mCount.incrementAndGet());
+            }
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    static boolean isSupported(Uri uri) {
+        String scheme = uri.getScheme();
+
+        return ContentResolver.SCHEME_FILE.equals(scheme)
+                || ContentResolver.SCHEME_CONTENT.equals(scheme)
+                || ContentResolver.SCHEME_ANDROID_RESOURCE.equals(scheme);
+    }
+
+    static String keyFor(Uri uri, int size) {
+        return size + ":" + uri;
+    }
+
+    /**
+     * Loads the icon, scaled to fit a square of the given size. Must be
+     * called on the main thread. If the icon is in memory already, the
+     * callback is called right away.
+     */
+    void load(final Uri uri, final int size, Callback callback) {
+        final String key = keyFor(uri, size);
+        Bitmap cached = mMemoryCache.get(key);
+
+        if (cached != null) {
+            callback.onIconLoaded(cached);
+            return;
+        }
+
+        ArrayList<Callback> callbacks = mPending.get(key);
+
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        mPending.put(key, callbacks);
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = loadInBackground(uri, size, key);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(key, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    private void deliver(String key, Bitmap bitmap) {
+        if (bitmap != null) {
+            mMemoryCache.put(key, bitmap);
+        }
+
+        ArrayList<Callback> callbacks = mPending.remove(key);
+
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).onIconLoaded(bitmap);
+        }
+    }
+
+    private Bitmap loadInBackground(Uri uri, int size, String key) {
+        File cacheFile = new File(mDiskCacheDir, hash(diskKeyFor(uri, key)) + ".png");
+
+        if (cacheFile.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(cacheFile.getPath());
+
+            if (bitmap != null) {
+                cacheFile.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+        }
+
+        try {
+            Bitmap bitmap = decode(uri, size);
+
+            if (bitmap != null) {
+                writeToDisk(cacheFile, bitmap);
+            }
+
+            return bitmap;
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't load the tab icon from " + uri, e);
+            return null;
+        }
+    }
+
+    /**
+     * A file that has changed since it was cached gets a new key, and the
+     * old copy is left for trimDiskCache to delete.
+     */
+    private static String diskKeyFor(Uri uri, String key) {
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme()) && uri.getPath() != null) {
+            return key + ":" + new File(uri.getPath()).lastModified();
+        }
+
+        return key;
+    }
+
+    /**
+     * Decodes the image subsampled as close to the size as possible
+     * without going under it, and scales the rest of the way.
+     */
+    private Bitmap decode(Uri uri, int size) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeStream(uri, options);
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        float scale = (float) size / Math.max(options.outWidth, options.outHeight);
+        int width = Math.max(1, Math.round(options.outWidth * scale));
+        int height = Math.max(1, Math.round(options.outHeight * scale));
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = computeSampleSize(options.outWidth, options.outHeight, width, height);
+
+        Bitmap decoded = decodeStream(uri, options);
+
+        if (decoded == null || (decoded.getWidth() == width && decoded.getHeight() == height)) {
+            return decoded;
+        }
+
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, width, height, true);
+
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+
+        return scaled;
+    }
+
+    static int computeSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+
+        return sampleSize;
+    }
+
+    private Bitmap decodeStream(Uri uri, BitmapFactory.Options options) throws IOException {
+        InputStream in = mContentResolver.openInputStream(uri);
+
+        if (in == null) {
+            throw new FileNotFoundException("Nothing to read at " + uri);
+        }
+
+        try {
+            return BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeToDisk(File cacheFile, Bitmap bitmap) {
+        if (!mDiskCacheDir.isDirectory() && !mDiskCacheDir.mkdirs()) {
+            return;
+        }
+
+        // Written under another name first, so a half written file is never read.
+        File tempFile = new File(mDiskCacheDir, cacheFile.getName() + ".tmp");
+        OutputStream out = null;
+
+        try {
+            out = new FileOutputStream(tempFile);
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+            out.close();
+            out = null;
+
+            if (!tempFile.renameTo(cacheFile)) {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't cache the tab icon", e);
+            tempFile.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        trimDiskCache();
+    }
+
+    /**
+     * Deletes the least recently used icons until the cache fits in its size.
+     */
+    private void trimDiskCache() {
+        File[] files = mDiskCacheDir.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        long totalSize = 0;
+
+        for (File file : files) {
+            totalSize += file.length();
+        }
+
+        if (totalSize <= MAX_DISK_CACHE_SIZE) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+
+        for (int i = 0; i < files.length && totalSize > MAX_DISK_CACHE_SIZE; i++) {
+            long length = files[i].length();
+
+            if (files[i].delete()) {
+                totalSize -= length;
+            }
+        }
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return builder.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+}
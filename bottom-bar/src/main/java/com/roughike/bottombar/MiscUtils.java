@@ -13,6 +13,7 @@ import android.support.annotation.MenuRes;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
 import android.view.Menu;
+import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewAnimationUtils;
@@ -36,9 +37,16 @@ import android.widget.TextView;
  * limitations under the License.
  */
 class MiscUtils {
+    /**
+     * Resolves a color attribute from the Context's theme.
+     *
+     * @param context the Context for getting the theme
+     * @param color   the color attribute to resolve
+     * @return the resolved color
+     */
     protected static int getColor(Context context, int color) {
         TypedValue tv = new TypedValue();
-        context.getTheme().resolveAttribute(R.attr.colorPrimary, tv, true);
+        context.getTheme().resolveAttribute(color, tv, true);
         return tv.data;
     }
 
@@ -55,30 +63,21 @@ class MiscUtils {
         return (int) (dp * (metrics.densityDpi / 160f));
     }
 
-    /**
-     * Returns screen width.
-     *
-     * @param context Context to get resources and device specific display metrics
-     * @return screen width
-     */
-    protected static int getScreenWidth(Context context) {
-        DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
-        return (int) (displayMetrics.widthPixels / displayMetrics.density);
-    }
-
     /**
      * A hacky method for inflating menus from xml resources to an array
      * of BottomBarTabs.
      *
-     * @param activity the activity context for retrieving the MenuInflater.
-     * @param menuRes  the xml menu resource to inflate
+     * @param context the context for retrieving the MenuInflater.
+     * @param menuRes the xml menu resource to inflate
      * @return an Array of BottomBarTabs.
      */
-    protected static BottomBarTab[] inflateMenuFromResource(Activity activity, @MenuRes int menuRes) {
+    protected static BottomBarTab[] inflateMenuFromResource(Context context, @MenuRes int menuRes) {
         // A bit hacky, but hey hey what can I do
-        PopupMenu popupMenu = new PopupMenu(activity, null);
+        PopupMenu popupMenu = new PopupMenu(context, null);
         Menu menu = popupMenu.getMenu();
-        activity.getMenuInflater().inflate(menuRes, menu);
+        MenuInflater menuInflater = context instanceof Activity ?
+                ((Activity) context).getMenuInflater() : new MenuInflater(context);
+        menuInflater.inflate(menuRes, menu);
 
         int menuSize = menu.size();
         BottomBarTab[] tabs = new BottomBarTab[menuSize];
@@ -104,10 +103,13 @@ class MiscUtils {
      * @param bgOverlay      the overlay view for the new background color that will be
      *                       animated in.
      * @param newColor       the new color.
+     * @param listener       notified when the animation ends, or null.
+     * @return the started animation, or null if there was nothing to animate.
      */
     @TargetApi(Build.VERSION_CODES.LOLLIPOP)
-    protected static void animateBGColorChange(View clickedView, final View backgroundView,
-                                               final View bgOverlay, final int newColor) {
+    protected static Animator animateBGColorChange(View clickedView, final View backgroundView,
+                                                   final View bgOverlay, final int newColor,
+                                                   Animator.AnimatorListener listener) {
         int centerX = (int) (clickedView.getX() + (clickedView.getMeasuredWidth() / 2));
         int centerY = clickedView.getMeasuredHeight() / 2;
         int finalRadius = backgroundView.getWidth();
@@ -119,7 +121,7 @@ class MiscUtils {
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             if (!bgOverlay.isAttachedToWindow()) {
-                return;
+                return null;
             }
 
             animator = ViewAnimationUtils
@@ -147,9 +149,14 @@ class MiscUtils {
             }
         });
 
+        if (listener != null) {
+            animator.addListener(listener);
+        }
+
         bgOverlay.setBackgroundColor(newColor);
         bgOverlay.setVisibility(View.VISIBLE);
         animator.start();
+        return animator;
     }
 
     /**
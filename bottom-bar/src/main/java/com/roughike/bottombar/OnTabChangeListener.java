@@ -0,0 +1,43 @@
+package com.roughike.bottombar;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface OnTabChangeListener {
+    /**
+     * The method being called when a tab becomes selected. Like with
+     * {@link OnTabSelectedListener}, this won't be fired for the tab that's
+     * selected when the BottomBar is initialized.
+     *
+     * @param position the position of the selected tab.
+     */
+    void onTabSelected(int position);
+
+    /**
+     * The method being called when a tab stops being selected.
+     *
+     * @param position the position of the previously selected tab.
+     */
+    void onTabUnselected(int position);
+
+    /**
+     * The method being called when the user clicks the already selected
+     * tab, for example to scroll its content to the top.
+     *
+     * @param position the position of the reselected tab.
+     */
+    void onTabReselected(int position);
+}
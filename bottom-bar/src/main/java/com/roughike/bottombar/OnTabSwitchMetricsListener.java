@@ -0,0 +1,42 @@
+package com.roughike.bottombar;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface OnTabSwitchMetricsListener {
+    /**
+     * The method being called once a tab switch has been fully measured,
+     * meaning the new content has been drawn and the tab animations have
+     * finished. Also called for a switch that was interrupted by the next
+     * one before its content was drawn, with -1 for the durations up to
+     * the first frame. All durations are in nanoseconds.
+     *
+     * @param position              the position of the selected tab.
+     * @param touchToSelectNanos    from the touch being released to the tab being selected,
+     *                              or -1 if the tab wasn't tapped, such as when it was
+     *                              selected from code or by swiping a ViewPager.
+     * @param selectToCommitNanos   from the tab being selected to the Fragment being committed,
+     *                              or 0 if there are no Fragments.
+     * @param commitToFirstFrameNanos from the commit to the first frame drawn with the new content,
+     *                              or -1 if the switch was interrupted.
+     * @param totalNanos            from the touch, or the selection if there was no touch,
+     *                              to the first frame drawn with the new content, or -1 if
+     *                              the switch was interrupted.
+     * @param droppedFrames         the number of frames dropped during the tab animations.
+     */
+    void onTabSwitchMeasured(int position, long touchToSelectNanos, long selectToCommitNanos,
+                             long commitToFirstFrameNanos, long totalNanos, int droppedFrames);
+}
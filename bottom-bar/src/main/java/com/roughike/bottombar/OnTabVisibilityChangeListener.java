@@ -0,0 +1,29 @@
+package com.roughike.bottombar;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface OnTabVisibilityChangeListener {
+    /**
+     * The method being called when the content of a tab is shown or
+     * hidden. Hidden tabs should pause anything they keep running, such
+     * as animations, polling or list updates, until they're shown again.
+     *
+     * @param position the position of the tab.
+     * @param visible  whether the content of the tab is now shown.
+     */
+    void onTabVisibilityChanged(int position, boolean visible);
+}
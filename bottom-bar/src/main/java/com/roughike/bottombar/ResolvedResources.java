@@ -0,0 +1,146 @@
+package com.roughike.bottombar;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.util.LruCache;
+import android.util.TypedValue;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+class ResolvedResources {
+    /**
+     * Shared by every BottomBar in the process, including the ones in
+     * Activities recreated after a rotation. Theme objects differ for
+     * every Activity, so the entries are keyed by what the values are
+     * resolved from instead, see {@link #cacheKey(Context)}. The values
+     * hold no Context, so keeping them around leaks nothing.
+     */
+    private static final LruCache<String, ResolvedResources> sCache = new LruCache<>(8);
+
+    final int primaryColor;
+    final int inActiveColor;
+    final int darkBackgroundColor;
+    final int whiteColor;
+    final int tabletRightBorderColor;
+    final int tabletRightBorderDarkColor;
+
+    final int twoDp;
+    final int tenDp;
+    final int iconSize;
+    final int minFixedItemWidth;
+    final int maxFixedItemWidth;
+    final int tabletModeMinWidth;
+    final int actionBarSize;
+
+    private final String key;
+
+    private ResolvedResources(Context context, String key) {
+        this.key = key;
+
+        primaryColor = MiscUtils.getColor(context, R.attr.colorPrimary);
+        inActiveColor = ContextCompat.getColor(context, R.color.bb_inActiveBottomBarItemColor);
+        darkBackgroundColor = ContextCompat.getColor(context, R.color.bb_darkBackgroundColor);
+        whiteColor = ContextCompat.getColor(context, R.color.white);
+        tabletRightBorderColor = ContextCompat.getColor(context, R.color.bb_tabletRightBorder);
+        tabletRightBorderDarkColor = ContextCompat.getColor(context, R.color.bb_tabletRightBorderDark);
+
+        twoDp = MiscUtils.dpToPixel(context, 2);
+        tenDp = MiscUtils.dpToPixel(context, 10);
+        iconSize = MiscUtils.dpToPixel(context, 24);
+        minFixedItemWidth = MiscUtils.dpToPixel(context, 80);
+        maxFixedItemWidth = MiscUtils.dpToPixel(context, 168);
+        tabletModeMinWidth = MiscUtils.dpToPixel(context, 600);
+
+        TypedValue tv = new TypedValue();
+
+        if (context.getTheme().resolveAttribute(android.R.attr.actionBarSize, tv, true)) {
+            actionBarSize = TypedValue.complexToDimensionPixelSize(tv.data,
+                    context.getResources().getDisplayMetrics());
+        } else {
+            actionBarSize = MiscUtils.dpToPixel(context, 56);
+        }
+    }
+
+    /**
+     * The theme attributes the values come from, as the references they
+     * point to, and the configuration the resources depend on. Resolving
+     * the references is a cheap lookup in the theme, unlike loading what
+     * they point to.
+     */
+    private static String cacheKey(Context context) {
+        Resources.Theme theme = context.getTheme();
+        Configuration config = context.getResources().getConfiguration();
+        TypedValue tv = new TypedValue();
+        StringBuilder key = new StringBuilder();
+
+        if (theme.resolveAttribute(R.attr.colorPrimary, tv, false)) {
+            key.append(tv.type).append(':').append(tv.data);
+        }
+
+        key.append(',');
+
+        if (theme.resolveAttribute(android.R.attr.actionBarSize, tv, false)) {
+            key.append(tv.type).append(':').append(tv.data);
+        }
+
+        return key.append(',').append(context.getResources().getDisplayMetrics().densityDpi)
+                .append(',').append(config.uiMode)
+                .append(',').append(config.smallestScreenWidthDp)
+                .toString();
+    }
+
+    /**
+     * Returns all the colors and dimensions the BottomBar needs. They're
+     * resolved only once per theme and configuration in the process.
+     *
+     * @param context the Context for resolving the theme and resources.
+     * @return the resolved values.
+     */
+    static ResolvedResources get(Context context) {
+        String key = cacheKey(context);
+        ResolvedResources resources = sCache.get(key);
+
+        if (resources == null) {
+            resources = new ResolvedResources(context, key);
+            sCache.put(key, resources);
+        }
+
+        return resources;
+    }
+
+    /**
+     * Forgets everything resolved so far. Needed only when the resources
+     * a theme points to change without the theme or configuration
+     * changing, as that can't be detected.
+     */
+    static void invalidate() {
+        sCache.evictAll();
+    }
+
+    /**
+     * Checks whether these values still apply, for example after a
+     * configuration change.
+     *
+     * @param context the Context to check against.
+     * @return true if nothing that affects these values has changed.
+     */
+    boolean isValidFor(Context context) {
+        return key.equals(cacheKey(context));
+    }
+}
@@ -0,0 +1,277 @@
+package com.roughike.bottombar;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Measures how long tab switches take, from the touch to the first frame
+ * drawn with the new content, and how many frames get dropped during the
+ * tab animations. The recent samples are kept in a fixed size ring buffer,
+ * so measuring doesn't allocate anything.
+ * <p/>
+ * A switch that's cut short by the next one before its content is drawn
+ * is still recorded, as interrupted, so fast switching shows up in the
+ * samples instead of leaving no trace.
+ * <p/>
+ * All timestamps come from System.nanoTime(), which uses the same clock
+ * as the uptime based MotionEvent timestamps on Android.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class TabSwitchMetrics implements Choreographer.FrameCallback, ViewTreeObserver.OnDrawListener {
+    static final int CAPACITY = 64;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long MAX_TOUCH_AGE_NANOS = 500 * NANOS_PER_MILLI;
+
+    private final long mFrameIntervalNanos;
+    private final long mTransitionNanos;
+    private OnTabSwitchMetricsListener mListener;
+
+    // The ring buffer
+    private final int[] mPositions = new int[CAPACITY];
+    private final long[] mTouchToSelect = new long[CAPACITY];
+    private final long[] mSelectToCommit = new long[CAPACITY];
+    private final long[] mCommitToFirstFrame = new long[CAPACITY];
+    private final long[] mTotal = new long[CAPACITY];
+    private final int[] mDroppedFrames = new int[CAPACITY];
+    private int mNextIndex;
+    private int mCount;
+
+    // The switch being measured
+    private long mTouchUpNanos;
+    private int mPosition = -1;
+    private long mTouchNanos;
+    private long mSelectNanos;
+    private long mCommitNanos;
+    private long mFirstFrameNanos;
+    private Object mPendingFragment;
+    private long mLastFrameNanos;
+    private int mDropped;
+    private boolean mAwaitingFirstFrame;
+    private boolean mAwaitingTransitionEnd;
+
+    TabSwitchMetrics(float refreshRate, long transitionMillis) {
+        mFrameIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60));
+        mTransitionNanos = transitionMillis * NANOS_PER_MILLI;
+    }
+
+    void setListener(OnTabSwitchMetricsListener listener) {
+        mListener = listener;
+    }
+
+    OnTabSwitchMetricsListener getListener() {
+        return mListener;
+    }
+
+    void onTouchUp(long eventTimeMillis) {
+        mTouchUpNanos = eventTimeMillis * NANOS_PER_MILLI;
+    }
+
+    void onTabSelected(int position) {
+        long now = System.nanoTime();
+
+        if (mPosition != -1) {
+            finish(mAwaitingFirstFrame);
+        }
+
+        mPosition = position;
+        mTouchNanos = mTouchUpNanos > 0 && now - mTouchUpNanos < MAX_TOUCH_AGE_NANOS ? mTouchUpNanos : 0;
+        mTouchUpNanos = 0;
+        mSelectNanos = now;
+        mCommitNanos = now;
+        mFirstFrameNanos = 0;
+        mPendingFragment = null;
+        mLastFrameNanos = 0;
+        mDropped = 0;
+        mAwaitingFirstFrame = true;
+
+        if (!mAwaitingTransitionEnd) {
+            mAwaitingTransitionEnd = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * @param fragment the committed android.app.Fragment or support Fragment.
+     */
+    void onFragmentCommitted(Object fragment) {
+        if (mPosition == -1) {
+            return;
+        }
+
+        mCommitNanos = System.nanoTime();
+        mPendingFragment = fragment;
+    }
+
+    @Override
+    public void onDraw() {
+        if (!mAwaitingFirstFrame || !isContentReady()) {
+            return;
+        }
+
+        mFirstFrameNanos = System.nanoTime();
+        mAwaitingFirstFrame = false;
+        mPendingFragment = null;
+
+        if (!mAwaitingTransitionEnd) {
+            finish(false);
+        }
+    }
+
+    private boolean isContentReady() {
+        View content = null;
+
+        if (mPendingFragment instanceof android.app.Fragment) {
+            content = ((android.app.Fragment) mPendingFragment).getView();
+        } else if (mPendingFragment instanceof android.support.v4.app.Fragment) {
+            content = ((android.support.v4.app.Fragment) mPendingFragment).getView();
+        } else if (mPendingFragment == null) {
+            return true;
+        }
+
+        return content != null && content.getWindowToken() != null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameNanos != 0) {
+            long interval = frameTimeNanos - mLastFrameNanos;
+
+            if (interval > mFrameIntervalNanos * 3 / 2) {
+                mDropped += (int) ((interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos) - 1;
+            }
+        }
+
+        mLastFrameNanos = frameTimeNanos;
+
+        if (frameTimeNanos - mSelectNanos < mTransitionNanos) {
+            Choreographer.getInstance().postFrameCallback(this);
+            return;
+        }
+
+        mAwaitingTransitionEnd = false;
+
+        if (!mAwaitingFirstFrame) {
+            finish(false);
+        }
+    }
+
+    void cancel() {
+        if (mAwaitingTransitionEnd) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            mAwaitingTransitionEnd = false;
+        }
+
+        mAwaitingFirstFrame = false;
+        mPendingFragment = null;
+        mPosition = -1;
+    }
+
+    /**
+     * @param interrupted whether another switch started before the new
+     *                    content of this one was drawn.
+     */
+    private void finish(boolean interrupted) {
+        if (mPosition == -1 || (mFirstFrameNanos == 0 && !interrupted)) {
+            mPosition = -1;
+            return;
+        }
+
+        long start = mTouchNanos != 0 ? mTouchNanos : mSelectNanos;
+        int index = mNextIndex;
+
+        mPositions[index] = mPosition;
+        mTouchToSelect[index] = mTouchNanos != 0 ? mSelectNanos - mTouchNanos : -1;
+        mSelectToCommit[index] = mCommitNanos - mSelectNanos;
+        mCommitToFirstFrame[index] = interrupted ? -1 : mFirstFrameNanos - mCommitNanos;
+        mTotal[index] = interrupted ? -1 : mFirstFrameNanos - start;
+        mDroppedFrames[index] = mDropped;
+
+        mNextIndex = (index + 1) % CAPACITY;
+        mCount = Math.min(mCount + 1, CAPACITY);
+        mPosition = -1;
+
+        if (mListener != null) {
+            mListener.onTabSwitchMeasured(mPositions[index], mTouchToSelect[index],
+                    mSelectToCommit[index], mCommitToFirstFrame[index], mTotal[index],
+                    mDroppedFrames[index]);
+        }
+    }
+
+    /**
+     * Writes the p50 / p95 switch latencies and dropped frames per tab.
+     */
+    void dump(String prefix, PrintWriter writer, int tabCount) {
+        writer.print(prefix);
+        writer.println("Tab switches (last " + mCount + "):");
+
+        for (int tab = 0; tab < tabCount; tab++) {
+            long[] totals = new long[mCount];
+            int samples = 0;
+            int interrupted = 0;
+            int dropped = 0;
+
+            for (int i = 0; i < mCount; i++) {
+                if (mPositions[i] != tab) {
+                    continue;
+                }
+
+                if (mTotal[i] == -1) {
+                    interrupted++;
+                } else {
+                    totals[samples++] = mTotal[i];
+                }
+
+                dropped += mDroppedFrames[i];
+            }
+
+            if (samples == 0 && interrupted == 0) {
+                continue;
+            }
+
+            writer.print(prefix);
+
+            if (samples == 0) {
+                writer.println(String.format(Locale.US,
+                        "  tab %d: n=0 interrupted=%d dropped frames=%d", tab, interrupted, dropped));
+                continue;
+            }
+
+            Arrays.sort(totals, 0, samples);
+            writer.println(String.format(Locale.US,
+                    "  tab %d: n=%d p50=%.1fms p95=%.1fms interrupted=%d dropped frames=%d",
+                    tab, samples,
+                    totals[percentileIndex(samples, 50)] / (float) NANOS_PER_MILLI,
+                    totals[percentileIndex(samples, 95)] / (float) NANOS_PER_MILLI,
+                    interrupted, dropped));
+        }
+    }
+
+    private static int percentileIndex(int samples, int percentile) {
+        return Math.min(samples - 1, (int) Math.ceil(samples * percentile / 100.0) - 1);
+    }
+}
@@ -0,0 +1,255 @@
+package com.roughike.bottombar;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Records how the user moves between the tabs of a BottomBar: the
+ * touches on the tabs, the tab selections and configuration changes,
+ * with the time between them. Set it with {@link BottomBar#setTabSwitchRecorder(TabSwitchRecorder)},
+ * then save the recording with {@link #writeTo(OutputStream)} and play
+ * it back later with a {@link TabSwitchReplayer}.
+ * <p/>
+ * The recording is kept in memory in a compact binary format, and stops
+ * growing once the size limit is reached. Touch coordinates are stored
+ * relative to the size of the BottomBar, so a recording can be replayed
+ * on a different screen.
+ * <p/>
+ * Only the touches that start on the tabs are recorded, including their
+ * moves, at most one per frame. Touches on the content the BottomBar
+ * wraps are left out, as replaying them would tap whatever happens to be
+ * under them then. Tab switches made from code, such as from a ViewPager
+ * swipe, are recorded as selections instead.
+ */
+public class TabSwitchRecorder {
+    static final int MAGIC = 0x42425231; // "BBR1"
+
+    static final int EVENT_TOUCH_DOWN = 1;
+    static final int EVENT_TOUCH_UP = 2;
+    static final int EVENT_TOUCH_CANCEL = 3;
+    static final int EVENT_SELECT = 4;
+    static final int EVENT_SELECTED = 5;
+    static final int EVENT_RESELECTED = 6;
+    static final int EVENT_CONFIGURATION_CHANGED = 7;
+    static final int EVENT_TOUCH_MOVE = 8;
+
+    // Touch coordinates are stored as fractions of the BottomBar's size.
+    static final int COORDINATE_SCALE = 10000;
+
+    private static final int DEFAULT_MAX_BYTES = 64 * 1024;
+    private static final int MIN_BYTES = 64;
+    private static final long MIN_MOVE_INTERVAL_MILLIS = 16;
+
+    private final int mMaxBytes;
+    private byte[] mBuffer = new byte[256];
+    private int mSize;
+    private boolean mIsFull;
+
+    private long mLastEventTime = -1;
+    private long mLastMoveTime;
+    private boolean mIsRecordingTouch;
+
+    /**
+     * Creates a recorder that keeps up to 64 KB of events, which is
+     * enough for thousands of tab switches.
+     */
+    public TabSwitchRecorder() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes the maximum size of the recording.
+     */
+    public TabSwitchRecorder(int maxBytes) {
+        if (maxBytes < MIN_BYTES) {
+            throw new IllegalArgumentException("The recording needs at least " + MIN_BYTES + " bytes.");
+        }
+
+        mMaxBytes = maxBytes;
+        reset();
+    }
+
+    /**
+     * Throws away everything recorded so far.
+     */
+    public void reset() {
+        mSize = 0;
+        mIsFull = false;
+        mLastEventTime = -1;
+        mIsRecordingTouch = false;
+        writeInt(MAGIC);
+    }
+
+    /**
+     * @return true if the size limit was reached and events are no
+     * longer recorded.
+     */
+    public boolean isFull() {
+        return mIsFull;
+    }
+
+    /**
+     * @return the size of the recording in bytes.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(mBuffer, mSize);
+    }
+
+    /**
+     * Writes the recording to the stream. Doesn't close the stream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(mBuffer, 0, mSize);
+    }
+
+    /**
+     * @param isOnTabs whether the touch started on the tabs. Only looked
+     *                 at for the down event.
+     */
+    void onTouchEvent(View bottomBar, MotionEvent ev, boolean isOnTabs) {
+        int type;
+
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mIsRecordingTouch = isOnTabs;
+                type = EVENT_TOUCH_DOWN;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (ev.getEventTime() - mLastMoveTime < MIN_MOVE_INTERVAL_MILLIS) {
+                    return;
+                }
+
+                mLastMoveTime = ev.getEventTime();
+                type = EVENT_TOUCH_MOVE;
+                break;
+            case MotionEvent.ACTION_UP:
+                type = EVENT_TOUCH_UP;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                type = EVENT_TOUCH_CANCEL;
+                break;
+            default:
+                return;
+        }
+
+        if (!mIsRecordingTouch) {
+            return;
+        }
+
+        if (type == EVENT_TOUCH_UP || type == EVENT_TOUCH_CANCEL) {
+            mIsRecordingTouch = false;
+        }
+
+        if (beginEvent(type, ev.getEventTime())) {
+            writeSignedVarInt(toScaled(ev.getX(), bottomBar.getWidth()));
+            writeSignedVarInt(toScaled(ev.getY(), bottomBar.getHeight()));
+        }
+    }
+
+    void onSelect(int position, boolean animate) {
+        if (beginEvent(EVENT_SELECT, SystemClock.uptimeMillis())) {
+            writeVarInt(position);
+            writeVarInt(animate ? 1 : 0);
+        }
+    }
+
+    void onSelected(int position) {
+        if (beginEvent(EVENT_SELECTED, SystemClock.uptimeMillis())) {
+            writeVarInt(position);
+        }
+    }
+
+    void onReselected(int position) {
+        if (beginEvent(EVENT_RESELECTED, SystemClock.uptimeMillis())) {
+            writeVarInt(position);
+        }
+    }
+
+    void onConfigurationChanged(int orientation) {
+        if (beginEvent(EVENT_CONFIGURATION_CHANGED, SystemClock.uptimeMillis())) {
+            writeVarInt(orientation);
+        }
+    }
+
+    /**
+     * Writes the type and the time since the previous event. The
+     * largest event is 1 + 3 * 5 bytes, so there's always room for
+     * the rest of it once this returns true.
+     */
+    private boolean beginEvent(int type, long eventTime) {
+        if (mIsFull) {
+            return false;
+        }
+
+        if (mSize + 16 > mMaxBytes) {
+            mIsFull = true;
+            return false;
+        }
+
+        long delta = mLastEventTime < 0 ? 0 : Math.max(0, eventTime - mLastEventTime);
+        mLastEventTime = eventTime;
+
+        writeByte(type);
+        writeVarInt((int) Math.min(delta, Integer.MAX_VALUE));
+        return true;
+    }
+
+    private static int toScaled(float coordinate, int size) {
+        return size > 0 ? Math.round(coordinate * COORDINATE_SCALE / size) : 0;
+    }
+
+    private void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeSignedVarInt(int value) {
+        // Zigzag, so small negative values stay small.
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        writeByte(value);
+    }
+
+    private void writeByte(int value) {
+        if (mSize == mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.min(mBuffer.length * 2, mMaxBytes));
+        }
+
+        mBuffer[mSize++] = (byte) value;
+    }
+}
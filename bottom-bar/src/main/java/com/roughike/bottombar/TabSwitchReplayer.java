@@ -0,0 +1,446 @@
+package com.roughike.bottombar;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Plays a {@link TabSwitchRecorder} recording back into a BottomBar, with
+ * the original timing or sped up. The touches go through the normal
+ * touch handling of the BottomBar, so the tabs get selected the same way
+ * they did for the user.
+ * <p/>
+ * While replaying, the tab switch latencies are collected with
+ * {@link BottomBar#setOnTabSwitchMetricsListener(OnTabSwitchMetricsListener)},
+ * and any {@link TabSwitchRecorder} set on the BottomBar is paused, so
+ * the replay doesn't record itself. Both are put back when the replay
+ * finishes or is cancelled. On Jelly Bean and older, there are no
+ * latencies in the results.
+ */
+public class TabSwitchReplayer {
+    private final byte[] mTypes;
+    private final long[] mDelays;
+    private final int[] mFirstArgs;
+    private final int[] mSecondArgs;
+    private final int mEventCount;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private float mSpeed = 1f;
+
+    private BottomBar mBottomBar;
+    private OnReplayListener mListener;
+    private int mNextEvent;
+    private long mStartTime;
+    private long mNextEventTime;
+    private long mDownTime;
+    private boolean mIsAllocCounting;
+
+    // What the BottomBar had before the replay
+    private boolean mHadTabSwitchMetrics;
+    private OnTabSwitchMetricsListener mPreviousMetricsListener;
+    private TabSwitchRecorder mPausedRecorder;
+
+    private long[] mLatencies;
+    private int mDroppedFrames;
+    private int mSwitchCount;
+
+    private final Runnable mReplayNextEvent = new Runnable() {
+        @Override
+        public void run() {
+            replayNextEvent();
+        }
+    };
+
+    /**
+     * Reads a recording written by {@link TabSwitchRecorder#writeTo(java.io.OutputStream)}.
+     * Doesn't close the stream.
+     *
+     * @throws IOException if the stream can't be read or doesn't contain a recording.
+     */
+    public TabSwitchReplayer(InputStream in) throws IOException {
+        this(readFully(in));
+    }
+
+    /**
+     * @param recording a recording from {@link TabSwitchRecorder#toByteArray()}.
+     * @throws IOException if the bytes don't contain a recording.
+     */
+    public TabSwitchReplayer(byte[] recording) throws IOException {
+        Reader reader = new Reader(recording);
+
+        if (reader.readInt() != TabSwitchRecorder.MAGIC) {
+            throw new IOException("Not a BottomBar tab switch recording.");
+        }
+
+        // Every event takes at least two bytes.
+        int capacity = recording.length / 2;
+        byte[] types = new byte[capacity];
+        long[] delays = new long[capacity];
+        int[] firstArgs = new int[capacity];
+        int[] secondArgs = new int[capacity];
+        int count = 0;
+
+        while (reader.hasMore()) {
+            int type = reader.readByte();
+            delays[count] = reader.readVarInt();
+
+            switch (type) {
+                case TabSwitchRecorder.EVENT_TOUCH_DOWN:
+                case TabSwitchRecorder.EVENT_TOUCH_MOVE:
+                case TabSwitchRecorder.EVENT_TOUCH_UP:
+                case TabSwitchRecorder.EVENT_TOUCH_CANCEL:
+                case TabSwitchRecorder.EVENT_SELECT:
+                    firstArgs[count] = type == TabSwitchRecorder.EVENT_SELECT ?
+                            reader.readVarInt() : reader.readSignedVarInt();
+                    secondArgs[count] = type == TabSwitchRecorder.EVENT_SELECT ?
+                            reader.readVarInt() : reader.readSignedVarInt();
+                    break;
+                case TabSwitchRecorder.EVENT_SELECTED:
+                case TabSwitchRecorder.EVENT_RESELECTED:
+                case TabSwitchRecorder.EVENT_CONFIGURATION_CHANGED:
+                    firstArgs[count] = reader.readVarInt();
+                    break;
+                default:
+                    throw new IOException("Unknown event type " + type + " in the recording.");
+            }
+
+            types[count] = (byte) type;
+            count++;
+        }
+
+        mTypes = types;
+        mDelays = delays;
+        mFirstArgs = firstArgs;
+        mSecondArgs = secondArgs;
+        mEventCount = count;
+    }
+
+    /**
+     * Replays the recording faster or slower than it was recorded.
+     *
+     * @param speed 1 for the original timing, 2 for twice as fast, and so on.
+     */
+    public void setSpeed(float speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed has to be more than zero.");
+        }
+
+        mSpeed = speed;
+    }
+
+    /**
+     * @return the amount of events in the recording.
+     */
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    /**
+     * Starts replaying into the BottomBar, which should already have its
+     * items set and be laid out. Must be called from the main thread.
+     *
+     * @param bottomBar the BottomBar to replay into.
+     * @param listener  gets the configuration changes and the results.
+     */
+    @SuppressWarnings("deprecation")
+    public void start(BottomBar bottomBar, OnReplayListener listener) {
+        if (mBottomBar != null) {
+            throw new IllegalStateException("Already replaying.");
+        }
+
+        if (listener == null) {
+            throw new IllegalArgumentException("The listener can't be null.");
+        }
+
+        mBottomBar = bottomBar;
+        mListener = listener;
+        mNextEvent = 0;
+        mSwitchCount = 0;
+        mDroppedFrames = 0;
+        mLatencies = new long[mEventCount];
+
+        mHadTabSwitchMetrics = bottomBar.isTabSwitchMetricsEnabled();
+        mPreviousMetricsListener = bottomBar.getOnTabSwitchMetricsListener();
+        mPausedRecorder = bottomBar.getTabSwitchRecorder();
+        bottomBar.setTabSwitchRecorder(null);
+
+        bottomBar.setOnTabSwitchMetricsListener(new OnTabSwitchMetricsListener() {
+            @Override
+            public void onTabSwitchMeasured(int position, long touchToSelectNanos, long selectToCommitNanos,
+                                            long commitToFirstFrameNanos, long totalNanos, int droppedFrames) {
+                if (mSwitchCount < mLatencies.length) {
+                    mLatencies[mSwitchCount++] = totalNanos;
+                    mDroppedFrames += droppedFrames;
+                }
+            }
+        });
+
+        // Only counts in debuggable processes, but that's where replays run.
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        mIsAllocCounting = true;
+
+        mStartTime = mNextEventTime = SystemClock.uptimeMillis();
+        scheduleNextEvent();
+    }
+
+    /**
+     * Stops replaying. The listener doesn't get the results.
+     */
+    @SuppressWarnings("deprecation")
+    public void cancel() {
+        mHandler.removeCallbacks(mReplayNextEvent);
+
+        if (mIsAllocCounting) {
+            Debug.stopAllocCounting();
+            mIsAllocCounting = false;
+        }
+
+        if (mBottomBar != null) {
+            restoreBottomBar();
+        }
+
+        mBottomBar = null;
+        mListener = null;
+    }
+
+    private void restoreBottomBar() {
+        if (mHadTabSwitchMetrics) {
+            mBottomBar.setOnTabSwitchMetricsListener(mPreviousMetricsListener);
+        } else {
+            mBottomBar.setTabSwitchMetricsEnabled(false);
+        }
+
+        mBottomBar.setTabSwitchRecorder(mPausedRecorder);
+        mPreviousMetricsListener = null;
+        mPausedRecorder = null;
+    }
+
+    private void scheduleNextEvent() {
+        if (mNextEvent == mEventCount) {
+            // Give the last switch time to draw before finishing.
+            mHandler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    finish();
+                }
+            }, BottomBar.ANIMATION_DURATION * 2);
+            return;
+        }
+
+        mNextEventTime += (long) (mDelays[mNextEvent] / mSpeed);
+        mHandler.postAtTime(mReplayNextEvent, mNextEventTime);
+    }
+
+    private void replayNextEvent() {
+        int index = mNextEvent++;
+        int type = mTypes[index];
+
+        switch (type) {
+            case TabSwitchRecorder.EVENT_TOUCH_DOWN:
+            case TabSwitchRecorder.EVENT_TOUCH_MOVE:
+            case TabSwitchRecorder.EVENT_TOUCH_UP:
+            case TabSwitchRecorder.EVENT_TOUCH_CANCEL:
+                dispatchTouch(type, mFirstArgs[index], mSecondArgs[index]);
+                break;
+            case TabSwitchRecorder.EVENT_SELECT:
+                mBottomBar.selectTabAtPosition(mFirstArgs[index], mSecondArgs[index] != 0);
+                break;
+            case TabSwitchRecorder.EVENT_CONFIGURATION_CHANGED:
+                mListener.onConfigurationChange(mFirstArgs[index]);
+                break;
+            default:
+                // The selections that followed from the touches happen
+                // by themselves, there's nothing to replay for them.
+                break;
+        }
+
+        if (mBottomBar != null) {
+            scheduleNextEvent();
+        }
+    }
+
+    private void dispatchTouch(int type, int scaledX, int scaledY) {
+        long now = SystemClock.uptimeMillis();
+        int action;
+
+        switch (type) {
+            case TabSwitchRecorder.EVENT_TOUCH_DOWN:
+                action = MotionEvent.ACTION_DOWN;
+                mDownTime = now;
+                break;
+            case TabSwitchRecorder.EVENT_TOUCH_MOVE:
+                action = MotionEvent.ACTION_MOVE;
+                break;
+            case TabSwitchRecorder.EVENT_TOUCH_UP:
+                action = MotionEvent.ACTION_UP;
+                break;
+            default:
+                action = MotionEvent.ACTION_CANCEL;
+                break;
+        }
+
+        float x = (float) scaledX * mBottomBar.getWidth() / TabSwitchRecorder.COORDINATE_SCALE;
+        float y = (float) scaledY * mBottomBar.getHeight() / TabSwitchRecorder.COORDINATE_SCALE;
+
+        MotionEvent event = MotionEvent.obtain(mDownTime, now, action, x, y, 0);
+        mBottomBar.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    @SuppressWarnings("deprecation")
+    private void finish() {
+        if (mBottomBar == null) {
+            return;
+        }
+
+        int allocCount = Debug.getThreadAllocCount();
+        long allocSize = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+        mIsAllocCounting = false;
+
+        Result result = new Result(mEventCount, SystemClock.uptimeMillis() - mStartTime,
+                Arrays.copyOf(mLatencies, mSwitchCount), mDroppedFrames, allocCount, allocSize);
+        OnReplayListener listener = mListener;
+
+        restoreBottomBar();
+        mBottomBar = null;
+        mListener = null;
+        listener.onReplayFinished(result);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Gets the configuration changes in the recording, which the replayer
+     * can't cause by itself, and the results once the replay is done.
+     */
+    public interface OnReplayListener {
+        /**
+         * A configuration change happened at this point in the recording.
+         * Rotate or resize the BottomBar's window here to reproduce it.
+         *
+         * @param orientation the new orientation, as in {@link android.content.res.Configuration#orientation}.
+         */
+        void onConfigurationChange(int orientation);
+
+        /**
+         * The whole recording has been replayed.
+         *
+         * @param result the latencies and allocations during the replay.
+         */
+        void onReplayFinished(Result result);
+    }
+
+    /**
+     * What happened during a replay.
+     */
+    public static class Result {
+        public final int eventCount;
+        public final long durationMillis;
+
+        /**
+         * Total latency of each tab switch, from the touch to the first
+         * frame drawn with the new content.
+         */
+        public final long[] switchLatenciesNanos;
+        public final int droppedFrames;
+
+        /**
+         * Allocations on the main thread, or zero when the process
+         * isn't debuggable.
+         */
+        public final int allocationCount;
+        public final long allocatedBytes;
+
+        Result(int eventCount, long durationMillis, long[] switchLatenciesNanos,
+               int droppedFrames, int allocationCount, long allocatedBytes) {
+            this.eventCount = eventCount;
+            this.durationMillis = durationMillis;
+            this.switchLatenciesNanos = switchLatenciesNanos;
+            this.droppedFrames = droppedFrames;
+            this.allocationCount = allocationCount;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private static class Reader {
+        private final byte[] mBytes;
+        private int mPosition;
+
+        Reader(byte[] bytes) {
+            mBytes = bytes;
+        }
+
+        boolean hasMore() {
+            return mPosition < mBytes.length;
+        }
+
+        int readByte() throws IOException {
+            if (mPosition >= mBytes.length) {
+                throw new IOException("The recording ends in the middle of an event.");
+            }
+
+            return mBytes[mPosition++] & 0xFF;
+        }
+
+        int readInt() throws IOException {
+            return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+
+            throw new IOException("Malformed number in the recording.");
+        }
+
+        int readSignedVarInt() throws IOException {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package com.roughike.bottombar.scrollsweetness;
 
 import android.support.design.widget.CoordinatorLayout;
-import android.support.v4.view.ViewCompat;
-import android.support.v4.view.ViewPropertyAnimatorCompat;
-import android.support.v4.view.animation.LinearOutSlowInInterpolator;
 import android.view.View;
-import android.view.animation.Interpolator;
+
+import java.util.ArrayList;
 
 /**
  * Created by Nikola D. on 3/15/2016.
@@ -14,55 +12,129 @@ import android.view.animation.Interpolator;
  * https://github.com/NikolaDespotoski
  */
 public class BottomNavigationBehavior<V extends View> extends VerticalScrollingBehavior<V> {
-    private static final Interpolator INTERPOLATOR = new LinearOutSlowInInterpolator();
-    private final int mBottomNavHeight;
-    private final int mDefaultOffset;
+    private int mBottomNavHeight;
+    private int mDefaultOffset;
+    private boolean mFollowsScroll;
 
-    private ViewPropertyAnimatorCompat mTranslationAnimator;
-    private boolean hidden = false;
+    private final ArrayList<View> mDependentViews = new ArrayList<>();
+    private ShyTranslationController mController;
 
     public BottomNavigationBehavior(int bottomNavHeight, int defaultOffset) {
         mBottomNavHeight = bottomNavHeight;
         mDefaultOffset = defaultOffset;
     }
 
+    /**
+     * Updates the distance the view is hidden by and its resting offset.
+     * If they changed, the view is moved to its new position right away.
+     *
+     * @param child           the view this Behavior is attached to.
+     * @param bottomNavHeight the height of the bottom navigation.
+     * @param defaultOffset   the translation of the view when shown.
+     */
+    public void setOffsets(V child, int bottomNavHeight, int defaultOffset) {
+        mBottomNavHeight = bottomNavHeight;
+        mDefaultOffset = defaultOffset;
+        getController(child).setOffsets(bottomNavHeight, defaultOffset);
+    }
+
+    /**
+     * Makes the view move with the scrolled content, pixel by pixel,
+     * instead of animating between shown and hidden. When the scroll
+     * stops, or the content is flung, the view settles to whichever
+     * state is closer, keeping the velocity it had.
+     *
+     * @param followsScroll whether the view should follow the scroll.
+     */
+    public void setFollowsScroll(boolean followsScroll) {
+        mFollowsScroll = followsScroll;
+
+        if (mController != null) {
+            mController.setFollowsScroll(followsScroll);
+        }
+    }
+
+    /**
+     * Moves the view by the same amount as the child of this Behavior,
+     * in the same frame. Use this for a FloatingActionButton or anything
+     * else that should get out of the way along with the child. Takes
+     * over the view's translationY.
+     *
+     * @param view the view to move along.
+     */
+    public void addDependentView(View view) {
+        if (!mDependentViews.contains(view)) {
+            mDependentViews.add(view);
+        }
+
+        if (mController != null) {
+            mController.addDependentView(view);
+        }
+    }
+
+    /**
+     * Stops moving the view, and puts it back where it was.
+     *
+     * @param view the view to stop moving.
+     */
+    public void removeDependentView(View view) {
+        mDependentViews.remove(view);
+
+        if (mController != null) {
+            mController.removeDependentView(view);
+        }
+    }
+
     @Override
-    public void onNestedVerticalOverScroll(CoordinatorLayout coordinatorLayout, V child, @ScrollDirection int direction, int currentOverScroll, int totalOverScroll) {
+    public void onNestedScrollAccepted(CoordinatorLayout coordinatorLayout, V child, View directTargetChild, View target, int nestedScrollAxes) {
+        super.onNestedScrollAccepted(coordinatorLayout, child, directTargetChild, target, nestedScrollAxes);
+        getController(child).onScrollStarted();
     }
 
     @Override
-    public void onDirectionNestedPreScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dx, int dy, int[] consumed, @ScrollDirection int scrollDirection) {
-        handleDirection(child, scrollDirection);
+    public void onNestedScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        super.onNestedScroll(coordinatorLayout, child, target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed);
+
+        // Only the scroll the content actually consumed moves the view.
+        if (mFollowsScroll) {
+            getController(child).onScrolled(dyConsumed, getScrollDirection());
+        }
+    }
+
+    @Override
+    public void onStopNestedScroll(CoordinatorLayout coordinatorLayout, V child, View target) {
+        super.onStopNestedScroll(coordinatorLayout, child, target);
+        getController(child).onScrollStopped();
     }
 
-    private void handleDirection(V child, int scrollDirection) {
-        if (scrollDirection == ScrollDirection.SCROLL_DIRECTION_DOWN && hidden) {
-            hidden = false;
-            animateOffset(child, mDefaultOffset);
-        } else if (scrollDirection == ScrollDirection.SCROLL_DIRECTION_UP && !hidden) {
-            hidden = true;
-            animateOffset(child, mBottomNavHeight + mDefaultOffset);
+    @Override
+    public void onNestedVerticalOverScroll(CoordinatorLayout coordinatorLayout, V child, @ScrollDirection int direction, int currentOverScroll, int totalOverScroll) {
+    }
+
+    @Override
+    public void onDirectionNestedPreScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dx, int dy, int[] consumed, @ScrollDirection int scrollDirection) {
+        if (!mFollowsScroll) {
+            getController(child).onScrolled(dy, scrollDirection);
         }
     }
 
     @Override
     protected boolean onNestedDirectionFling(CoordinatorLayout coordinatorLayout, V child, View target, float velocityX, float velocityY, @ScrollDirection int scrollDirection) {
-        handleDirection(child, scrollDirection);
+        getController(child).onFling(velocityY, scrollDirection);
         return true;
     }
 
-    private void animateOffset(final V child, final int offset) {
-        ensureOrCancelAnimator(child);
-        mTranslationAnimator.translationY(offset).start();
-    }
+    private ShyTranslationController getController(V child) {
+        if (mController == null) {
+            mController = new ShyTranslationController(child);
+            mController.setFollowsScroll(mFollowsScroll);
+            mController.setOffsets(mBottomNavHeight, mDefaultOffset);
 
-    private void ensureOrCancelAnimator(V child) {
-        if (mTranslationAnimator == null) {
-            mTranslationAnimator = ViewCompat.animate(child);
-            mTranslationAnimator.setDuration(300);
-            mTranslationAnimator.setInterpolator(INTERPOLATOR);
-        } else {
-            mTranslationAnimator.cancel();
+            for (int i = 0; i < mDependentViews.size(); i++) {
+                mController.addDependentView(mDependentViews.get(i));
+            }
         }
+
+        return mController;
     }
 }
@@ -0,0 +1,133 @@
+package com.roughike.bottombar.scrollsweetness;
+
+import android.support.v4.widget.NestedScrollView;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.roughike.bottombar.core.ScrollDirectionTracker;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Feeds the scrolling of a RecyclerView or a NestedScrollView straight
+ * to a {@link ShyTranslationController}, for hiding things on scroll
+ * without a CoordinatorLayout.
+ */
+public class ShyScrollListener extends RecyclerView.OnScrollListener
+        implements NestedScrollView.OnScrollChangeListener {
+    // NestedScrollView doesn't tell when it stops, so it's assumed
+    // to have stopped after this long without scrolling.
+    private static final long IDLE_TIMEOUT = 100;
+
+    private final ScrollDirectionTracker mTracker = new ScrollDirectionTracker();
+    private boolean mHasThresholds;
+
+    private ShyTranslationController mController;
+    private View mIdleView;
+    private boolean mIsScrolling;
+
+    private final Runnable mScrollStopped = new Runnable() {
+        @Override
+        public void run() {
+            mIsScrolling = false;
+
+            if (mController != null) {
+                mController.onScrollStopped();
+            }
+        }
+    };
+
+    /**
+     * @param controller the controller that moves the views, or null
+     *                   if there's nothing to move at the moment.
+     */
+    public void setController(ShyTranslationController controller) {
+        if (mController != null && mController != controller) {
+            mController.cancel();
+        }
+
+        mController = controller;
+    }
+
+    /**
+     * Sets how far the content has to scroll, or how fast it has to be
+     * flung, against the current direction before the direction changes.
+     * Defaults to the touch slop and the minimum fling velocity.
+     *
+     * @param distanceThreshold the distance in pixels.
+     * @param velocityThreshold the fling velocity in pixels per second.
+     */
+    public void setScrollThresholds(int distanceThreshold, float velocityThreshold) {
+        mTracker.setThresholds(distanceThreshold, velocityThreshold);
+        mHasThresholds = true;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (mController == null) {
+            return;
+        }
+
+        if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+            mController.onScrollStarted();
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            mController.onScrollStopped();
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        onScrolled(recyclerView, dy);
+    }
+
+    @Override
+    public void onScrollChange(NestedScrollView v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
+        if (mController == null) {
+            return;
+        }
+
+        if (!mIsScrolling) {
+            mIsScrolling = true;
+            mController.onScrollStarted();
+        }
+
+        onScrolled(v, scrollY - oldScrollY);
+
+        if (mIdleView != null) {
+            mIdleView.removeCallbacks(mScrollStopped);
+        }
+
+        mIdleView = v;
+        v.postDelayed(mScrollStopped, IDLE_TIMEOUT);
+    }
+
+    private void onScrolled(View scrollingView, int dy) {
+        if (mController == null || dy == 0) {
+            return;
+        }
+
+        if (!mHasThresholds) {
+            ViewConfiguration configuration = ViewConfiguration.get(scrollingView.getContext());
+            setScrollThresholds(configuration.getScaledTouchSlop(),
+                    configuration.getScaledMinimumFlingVelocity());
+        }
+
+        mController.onScrolled(dy, mTracker.onScroll(dy));
+    }
+}
@@ -0,0 +1,323 @@
+package com.roughike.bottombar.scrollsweetness;
+
+import android.animation.ValueAnimator;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.animation.LinearOutSlowInInterpolator;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+import com.roughike.bottombar.core.ScrollDirectionTracker;
+import com.roughike.bottombar.core.SpringSettle;
+
+import java.util.ArrayList;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Moves views out of the way when the content scrolls, and back when
+ * it scrolls the other way. Knows nothing about where the scroll events
+ * come from, so both the CoordinatorLayout Behavior and the plain
+ * scroll listeners share it.
+ * <p/>
+ * By default, the views animate between shown and hidden when the
+ * scroll direction changes. In the follow the scroll mode, they move
+ * with the content and settle with a spring once the scroll stops.
+ * Either way, all the views are moved together.
+ * <p/>
+ * Dependent views, such as a FloatingActionButton, can be registered to
+ * move by the same amount. They're updated in the same pass as the
+ * views themselves, so they never lag a frame behind.
+ */
+public class ShyTranslationController {
+    private static final long ANIMATION_DURATION = 300;
+    private static final float SETTLE_STIFFNESS = 800f;
+    private static final float MAX_FRAME_SECONDS = 0.05f;
+
+    private final View[] mViews;
+    private final ArrayList<View> mDependentViews = new ArrayList<>();
+
+    private int mHeight;
+    private int mDefaultOffset;
+    private float mTranslation;
+    private boolean mIsHidden;
+
+    private ValueAnimator mAnimator;
+    private float mAnimationStart;
+    private float mAnimationEnd;
+
+    // Following the scroll, then settling with a spring
+    private boolean mFollowsScroll;
+    private final SpringSettle mSettle = new SpringSettle(SETTLE_STIFFNESS);
+    private boolean mIsSettling;
+    private long mLastFrameTime;
+    private long mLastScrollTime;
+    private float mScrollVelocity;
+
+    private final Runnable mSettleFrame = new Runnable() {
+        @Override
+        public void run() {
+            onSettleFrame();
+        }
+    };
+
+    /**
+     * @param views the views to move. The first one is used for timing
+     *              the frames, so it should be attached whenever scrolling.
+     */
+    public ShyTranslationController(View... views) {
+        if (views.length == 0) {
+            throw new IllegalArgumentException("There has to be at least one view to move.");
+        }
+
+        mViews = views;
+        mTranslation = ViewCompat.getTranslationY(views[0]);
+    }
+
+    /**
+     * Updates the distance the views are hidden by and their resting
+     * offset. If they changed, the views are moved to their new
+     * position right away.
+     *
+     * @param height        how far the views move when hidden.
+     * @param defaultOffset the translation of the views when shown.
+     */
+    public void setOffsets(int height, int defaultOffset) {
+        if (height == mHeight && defaultOffset == mDefaultOffset) {
+            return;
+        }
+
+        mHeight = height;
+        mDefaultOffset = defaultOffset;
+
+        cancel();
+        setTranslation(mIsHidden ? mHeight + mDefaultOffset : mDefaultOffset);
+    }
+
+    /**
+     * @param followsScroll whether the views should move with the scroll,
+     *                      instead of animating when the direction changes.
+     */
+    public void setFollowsScroll(boolean followsScroll) {
+        mFollowsScroll = followsScroll;
+    }
+
+    public boolean isHidden() {
+        return mIsHidden;
+    }
+
+    /**
+     * Moves the view together with the others, by as much as they've
+     * moved from their resting offset. Takes over the view's translationY,
+     * so it shouldn't have a Behavior or an animator of its own moving it.
+     *
+     * @param view the view to move along.
+     */
+    public void addDependentView(View view) {
+        if (!mDependentViews.contains(view)) {
+            mDependentViews.add(view);
+            ViewCompat.setTranslationY(view, mTranslation - mDefaultOffset);
+        }
+    }
+
+    /**
+     * Stops moving the view, and puts it back where it was.
+     *
+     * @param view the view to stop moving.
+     */
+    public void removeDependentView(View view) {
+        if (mDependentViews.remove(view)) {
+            ViewCompat.setTranslationY(view, 0);
+        }
+    }
+
+    /**
+     * Call when the user starts a new scroll.
+     */
+    public void onScrollStarted() {
+        if (mFollowsScroll) {
+            cancelSettle();
+            mLastScrollTime = 0;
+            mScrollVelocity = 0;
+        }
+    }
+
+    /**
+     * Call for every scroll step of the content.
+     *
+     * @param dy        how much the content scrolled, positive when
+     *                  moving towards its end.
+     * @param direction the scroll direction, one of the {@link ScrollDirectionTracker} constants.
+     */
+    public void onScrolled(int dy, int direction) {
+        if (mFollowsScroll) {
+            if (dy != 0) {
+                followScroll(dy);
+            }
+        } else {
+            handleDirection(direction);
+        }
+    }
+
+    /**
+     * Call when the content was flung.
+     *
+     * @param velocityY the velocity in pixels per second, positive when
+     *                  moving towards the end of the content.
+     * @param direction the scroll direction, one of the {@link ScrollDirectionTracker} constants.
+     */
+    public void onFling(float velocityY, int direction) {
+        if (mFollowsScroll) {
+            settle(velocityY);
+        } else {
+            handleDirection(direction);
+        }
+    }
+
+    /**
+     * Call when the content stops scrolling.
+     */
+    public void onScrollStopped() {
+        // A fling may have started settling already.
+        if (mFollowsScroll && !mIsSettling) {
+            settle(mScrollVelocity);
+        }
+    }
+
+    /**
+     * Stops any animation, leaving the views where they are.
+     */
+    public void cancel() {
+        if (mAnimator != null) {
+            mAnimator.cancel();
+        }
+
+        cancelSettle();
+    }
+
+    private void handleDirection(int direction) {
+        if (direction == ScrollDirectionTracker.DIRECTION_DOWN && mIsHidden) {
+            mIsHidden = false;
+            animateTo(mDefaultOffset);
+        } else if (direction == ScrollDirectionTracker.DIRECTION_UP && !mIsHidden) {
+            mIsHidden = true;
+            animateTo(mHeight + mDefaultOffset);
+        }
+    }
+
+    private void animateTo(float translation) {
+        cancelSettle();
+
+        if (mAnimator == null) {
+            mAnimator = ValueAnimator.ofFloat(0, 1);
+            mAnimator.setDuration(ANIMATION_DURATION);
+            mAnimator.setInterpolator(new LinearOutSlowInInterpolator());
+            mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    // Interpolated here, as getAnimatedValue() would box a Float every frame.
+                    float fraction = animation.getAnimatedFraction();
+                    setTranslation(mAnimationStart + (mAnimationEnd - mAnimationStart) * fraction);
+                }
+            });
+        } else {
+            mAnimator.cancel();
+        }
+
+        mAnimationStart = mTranslation;
+        mAnimationEnd = translation;
+        mAnimator.start();
+    }
+
+    private void followScroll(int dy) {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+
+        if (mLastScrollTime > 0 && now > mLastScrollTime) {
+            // Smoothed, as single scroll events are noisy.
+            float velocity = dy * 1000f / (now - mLastScrollTime);
+            mScrollVelocity = 0.6f * velocity + 0.4f * mScrollVelocity;
+        }
+
+        mLastScrollTime = now;
+        cancel();
+
+        float translation = mTranslation + dy;
+        setTranslation(Math.max(mDefaultOffset, Math.min(mHeight + mDefaultOffset, translation)));
+    }
+
+    private void settle(float velocity) {
+        float shown = mDefaultOffset;
+        float hidden = mHeight + mDefaultOffset;
+        float target = SpringSettle.chooseTarget(mTranslation, velocity, shown, hidden);
+
+        mIsHidden = target == hidden;
+
+        if (mTranslation == target) {
+            return;
+        }
+
+        if (mAnimator != null) {
+            mAnimator.cancel();
+        }
+
+        mSettle.start(mTranslation, velocity, target, shown, hidden);
+        mIsSettling = true;
+        mLastFrameTime = AnimationUtils.currentAnimationTimeMillis();
+        ViewCompat.postOnAnimation(mViews[0], mSettleFrame);
+    }
+
+    private void onSettleFrame() {
+        if (!mIsSettling) {
+            return;
+        }
+
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        float seconds = Math.min((now - mLastFrameTime) / 1000f, MAX_FRAME_SECONDS);
+        mLastFrameTime = now;
+
+        boolean running = mSettle.step(seconds);
+        setTranslation(mSettle.getPosition());
+
+        if (running) {
+            ViewCompat.postOnAnimation(mViews[0], mSettleFrame);
+        } else {
+            mIsSettling = false;
+        }
+    }
+
+    private void cancelSettle() {
+        if (mIsSettling) {
+            mSettle.cancel();
+            mViews[0].removeCallbacks(mSettleFrame);
+            mIsSettling = false;
+        }
+    }
+
+    private void setTranslation(float translation) {
+        mTranslation = translation;
+
+        for (View view : mViews) {
+            ViewCompat.setTranslationY(view, translation);
+        }
+
+        float dependentTranslation = translation - mDefaultOffset;
+
+        for (int i = 0; i < mDependentViews.size(); i++) {
+            ViewCompat.setTranslationY(mDependentViews.get(i), dependentTranslation);
+        }
+    }
+}
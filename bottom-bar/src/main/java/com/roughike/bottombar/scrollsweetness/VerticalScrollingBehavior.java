@@ -7,6 +7,9 @@ import android.support.design.widget.CoordinatorLayout;
 import android.support.v4.view.WindowInsetsCompat;
 import android.util.AttributeSet;
 import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.roughike.bottombar.core.ScrollDirectionTracker;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -19,12 +22,8 @@ import java.lang.annotation.RetentionPolicy;
  */
 public abstract class VerticalScrollingBehavior<V extends View> extends CoordinatorLayout.Behavior<V> {
 
-    private int mTotalDyUnconsumed = 0;
-    private int mTotalDy = 0;
-    @ScrollDirection
-    private int mOverScrollDirection = ScrollDirection.SCROLL_NONE;
-    @ScrollDirection
-    private int mScrollDirection = ScrollDirection.SCROLL_NONE;
+    private final ScrollDirectionTracker mTracker = new ScrollDirectionTracker();
+    private boolean mHasThresholds;
 
     public VerticalScrollingBehavior(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -37,9 +36,9 @@ public abstract class VerticalScrollingBehavior<V extends View> extends Coordina
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({ScrollDirection.SCROLL_DIRECTION_UP, ScrollDirection.SCROLL_DIRECTION_DOWN})
     public @interface ScrollDirection {
-        int SCROLL_DIRECTION_UP = 1;
-        int SCROLL_DIRECTION_DOWN = -1;
-        int SCROLL_NONE = 0;
+        int SCROLL_DIRECTION_UP = ScrollDirectionTracker.DIRECTION_UP;
+        int SCROLL_DIRECTION_DOWN = ScrollDirectionTracker.DIRECTION_DOWN;
+        int SCROLL_NONE = ScrollDirectionTracker.DIRECTION_NONE;
     }
 
 
@@ -48,7 +47,7 @@ public abstract class VerticalScrollingBehavior<V extends View> extends Coordina
    */
     @ScrollDirection
     public int getOverScrollDirection() {
-        return mOverScrollDirection;
+        return mTracker.getOverScrollDirection();
     }
 
 
@@ -58,7 +57,7 @@ public abstract class VerticalScrollingBehavior<V extends View> extends Coordina
 
     @ScrollDirection
     public int getScrollDirection() {
-        return mScrollDirection;
+        return mTracker.getDirection();
     }
 
 
@@ -76,8 +75,27 @@ public abstract class VerticalScrollingBehavior<V extends View> extends Coordina
      */
     public abstract void onDirectionNestedPreScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dx, int dy, int[] consumed, @ScrollDirection int scrollDirection);
 
+    /**
+     * Sets how far the content has to scroll, or how fast it has to be
+     * flung, against the current direction before the direction changes.
+     * Defaults to the touch slop and the minimum fling velocity.
+     *
+     * @param distanceThreshold the distance in pixels.
+     * @param velocityThreshold the fling velocity in pixels per second.
+     */
+    public void setScrollThresholds(int distanceThreshold, float velocityThreshold) {
+        mTracker.setThresholds(distanceThreshold, velocityThreshold);
+        mHasThresholds = true;
+    }
+
     @Override
     public boolean onStartNestedScroll(CoordinatorLayout coordinatorLayout, V child, View directTargetChild, View target, int nestedScrollAxes) {
+        if (!mHasThresholds) {
+            ViewConfiguration configuration = ViewConfiguration.get(coordinatorLayout.getContext());
+            setScrollThresholds(configuration.getScaledTouchSlop(),
+                    configuration.getScaledMinimumFlingVelocity());
+        }
+
         return (nestedScrollAxes & View.SCROLL_AXIS_VERTICAL) != 0;
     }
 
@@ -94,37 +112,23 @@ public abstract class VerticalScrollingBehavior<V extends View> extends Coordina
     @Override
     public void onNestedScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
         super.onNestedScroll(coordinatorLayout, child, target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed);
-        if (dyUnconsumed > 0 && mTotalDyUnconsumed < 0) {
-            mTotalDyUnconsumed = 0;
-            mOverScrollDirection = ScrollDirection.SCROLL_DIRECTION_UP;
-        } else if (dyUnconsumed < 0 && mTotalDyUnconsumed > 0) {
-            mTotalDyUnconsumed = 0;
-            mOverScrollDirection = ScrollDirection.SCROLL_DIRECTION_DOWN;
-        }
-        mTotalDyUnconsumed += dyUnconsumed;
-        onNestedVerticalOverScroll(coordinatorLayout, child, mOverScrollDirection, dyConsumed, mTotalDyUnconsumed);
+        int overScrollDirection = mTracker.onOverScroll(dyUnconsumed);
+        onNestedVerticalOverScroll(coordinatorLayout, child, overScrollDirection, dyConsumed, mTracker.getTotalDyUnconsumed());
     }
 
     @Override
     public void onNestedPreScroll(CoordinatorLayout coordinatorLayout, V child, View target, int dx, int dy, int[] consumed) {
         super.onNestedPreScroll(coordinatorLayout, child, target, dx, dy, consumed);
-        if (dy > 0 && mTotalDy < 0) {
-            mTotalDy = 0;
-            mScrollDirection = ScrollDirection.SCROLL_DIRECTION_UP;
-        } else if (dy < 0 && mTotalDy > 0) {
-            mTotalDy = 0;
-            mScrollDirection = ScrollDirection.SCROLL_DIRECTION_DOWN;
-        }
-        mTotalDy += dy;
-        onDirectionNestedPreScroll(coordinatorLayout, child, target, dx, dy, consumed, mScrollDirection);
+        int scrollDirection = mTracker.onScroll(dy);
+        onDirectionNestedPreScroll(coordinatorLayout, child, target, dx, dy, consumed, scrollDirection);
     }
 
 
     @Override
     public boolean onNestedFling(CoordinatorLayout coordinatorLayout, V child, View target, float velocityX, float velocityY, boolean consumed) {
         super.onNestedFling(coordinatorLayout, child, target, velocityX, velocityY, consumed);
-        mScrollDirection = velocityY > 0 ? ScrollDirection.SCROLL_DIRECTION_UP : ScrollDirection.SCROLL_DIRECTION_DOWN;
-        return onNestedDirectionFling(coordinatorLayout, child, target, velocityX, velocityY, mScrollDirection);
+        int scrollDirection = mTracker.onFling(velocityY);
+        return onNestedDirectionFling(coordinatorLayout, child, target, velocityX, velocityY, scrollDirection);
     }
 
     protected abstract boolean onNestedDirectionFling(CoordinatorLayout coordinatorLayout, V child, View target, float velocityX, float velocityY, @ScrollDirection int scrollDirection);
@@ -0,0 +1,193 @@
+package com.roughike.bottombar;
+
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Bundle;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.app.Fragment;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View.MeasureSpec;
+import android.widget.FrameLayout;
+
+import com.roughike.bottombar.scrollsweetness.BottomNavigationBehavior;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Keeps the common BottomBar operations within their allocation and
+ * view count budgets. The budgets are in performance-budgets.properties.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BottomBarPerformanceTest {
+    private static final int SELECTION_ROUNDS = 100;
+    private static final int COLOR_MAP_ROUNDS = 1000;
+    private static final int SCROLL_EVENTS = 1000;
+
+    // A typical phone, well below the 600dp where the tablet rail starts.
+    private static final int PHONE_WIDTH_DP = 360;
+    private static final int PHONE_HEIGHT_DP = 640;
+
+    private PerformanceHarness mHarness;
+    private TestActivity mActivity;
+
+    @Before
+    public void setUp() {
+        mHarness = new PerformanceHarness();
+        mActivity = Robolectric.setupActivity(TestActivity.class);
+    }
+
+    @Test
+    public void attachWithThreeTabs() {
+        measureAttach(3);
+    }
+
+    @Test
+    public void attachWithFiveTabs() {
+        measureAttach(5);
+    }
+
+    @Test
+    public void attachWithEightTabs() {
+        measureAttach(8);
+    }
+
+    @Test
+    public void tabSwitching() {
+        final BottomBar bottomBar = attach(5);
+
+        PerformanceHarness.Result result = mHarness.measure("tabSwitching", new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < SELECTION_ROUNDS; i++) {
+                    bottomBar.selectTabAtPosition(i % 5, true);
+                }
+            }
+        });
+
+        result.viewCount = PerformanceHarness.countViews(bottomBar);
+        mHarness.assertWithinBudget(result);
+    }
+
+    @Test
+    public void colorMapChurn() {
+        final BottomBar bottomBar = attach(5);
+
+        PerformanceHarness.Result result = mHarness.measure("colorMapChurn", new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COLOR_MAP_ROUNDS; i++) {
+                    bottomBar.mapColorForTab(i % 5, 0xFF000000 | i);
+                }
+            }
+        });
+
+        mHarness.assertWithinBudget(result);
+    }
+
+    @Test
+    public void nestedScrollBursts() {
+        final CoordinatorLayout coordinatorLayout = new CoordinatorLayout(mActivity);
+        final FrameLayout child = new FrameLayout(mActivity);
+        final FrameLayout target = new FrameLayout(mActivity);
+        coordinatorLayout.addView(child);
+        coordinatorLayout.addView(target);
+
+        final BottomNavigationBehavior<FrameLayout> behavior = new BottomNavigationBehavior<>(100, 0);
+        final int[] consumed = new int[2];
+
+        PerformanceHarness.Result result = mHarness.measure("nestedScrollBursts", new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < SCROLL_EVENTS; i++) {
+                    // Bursts of 50 events in one direction, then back.
+                    int dy = (i / 50) % 2 == 0 ? 12 : -12;
+                    behavior.onNestedPreScroll(coordinatorLayout, child, target, 0, dy, consumed);
+                }
+            }
+        });
+
+        mHarness.assertWithinBudget(result);
+    }
+
+    private void measureAttach(final int tabCount) {
+        final BottomBar[] holder = new BottomBar[1];
+
+        Runnable newActivity = new Runnable() {
+            @Override
+            public void run() {
+                mActivity = Robolectric.setupActivity(TestActivity.class);
+            }
+        };
+
+        PerformanceHarness.Result result = mHarness.measure("attach." + tabCount, newActivity, new Runnable() {
+            @Override
+            public void run() {
+                holder[0] = attach(tabCount);
+            }
+        });
+
+        result.viewCount = PerformanceHarness.countViews(holder[0]);
+        mHarness.assertWithinBudget(result);
+    }
+
+    private BottomBar attach(int tabCount) {
+        BottomBar bottomBar = BottomBar.attach(mActivity, null);
+        BottomBarFragment[] items = new BottomBarFragment[tabCount];
+
+        for (int i = 0; i < tabCount; i++) {
+            items[i] = new BottomBarFragment(new Fragment(),
+                    new ColorDrawable(Color.GRAY), "Tab " + i);
+        }
+
+        bottomBar.setFragmentItems(mActivity.getSupportFragmentManager(), TestActivity.CONTAINER_ID, items);
+
+        // Lay out at a phone's size in dp, whatever the density, so
+        // the layout keeps the phone presentation.
+        float density = mActivity.getResources().getDisplayMetrics().density;
+        int width = (int) (PHONE_WIDTH_DP * density);
+        int height = (int) (PHONE_HEIGHT_DP * density);
+
+        bottomBar.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+        bottomBar.layout(0, 0, width, height);
+
+        return bottomBar;
+    }
+
+    public static class TestActivity extends AppCompatActivity {
+        static final int CONTAINER_ID = 1;
+
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            setTheme(android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+            super.onCreate(savedInstanceState);
+
+            FrameLayout container = new FrameLayout(this);
+            container.setId(CONTAINER_ID);
+            setContentView(container);
+        }
+    }
+}
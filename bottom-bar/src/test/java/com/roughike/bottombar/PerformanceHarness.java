@@ -0,0 +1,209 @@
+package com.roughike.bottombar;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Measures wall time, allocated bytes and view counts of a scenario, and
+ * checks them against the budgets in performance-budgets.properties.
+ * <p/>
+ * A budget can be overridden from the command line with a system
+ * property of the same name prefixed with "bottombar.budget.".
+ * <p/>
+ * Allocations are counted for the current thread by the HotSpot
+ * ThreadMXBean. On JVMs without it, the allocation budgets are skipped.
+ * <p/>
+ * Every result is appended to build/reports/performance/results.txt,
+ * passing or not, so the numbers can be followed from run to run.
+ */
+class PerformanceHarness {
+    private static final String BUDGETS_FILE = "performance-budgets.properties";
+    private static final String OVERRIDE_PREFIX = "bottombar.budget.";
+    private static final File RESULTS_FILE = new File("build/reports/performance/results.txt");
+
+    private final Properties mBudgets = new Properties();
+    private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+
+    PerformanceHarness() {
+        InputStream in = getClass().getClassLoader().getResourceAsStream(BUDGETS_FILE);
+
+        if (in == null) {
+            fail("Missing " + BUDGETS_FILE + " in the test resources.");
+        }
+
+        try {
+            mBudgets.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + BUDGETS_FILE, e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Runs the scenario once to warm up class loading and caches, then
+     * again while measuring.
+     */
+    Result measure(String scenario, Runnable runnable) {
+        return measure(scenario, null, runnable);
+    }
+
+    /**
+     * Same as {@link #measure(String, Runnable)}, but runs the setUp
+     * before each run of the scenario, outside of the measurement.
+     */
+    Result measure(String scenario, Runnable setUp, Runnable runnable) {
+        if (setUp != null) {
+            setUp.run();
+        }
+
+        runnable.run();
+
+        if (setUp != null) {
+            setUp.run();
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        runnable.run();
+
+        long wallNanos = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+        long allocated = allocatedBefore >= 0 && allocatedAfter >= 0 ?
+                allocatedAfter - allocatedBefore : -1;
+
+        return new Result(scenario, wallNanos, allocated);
+    }
+
+    /**
+     * Fails when the allocations or the view count of the result go
+     * over the budgets for its scenario. Budgets that aren't set
+     * aren't checked.
+     */
+    void assertWithinBudget(Result result) {
+        report(result);
+
+        long allocationBudget = getBudget(result.scenario + ".allocatedBytes");
+
+        if (allocationBudget >= 0 && result.allocatedBytes >= 0) {
+            assertTrue(result + ": over the budget of " + allocationBudget + " bytes.",
+                    result.allocatedBytes <= allocationBudget);
+        }
+
+        long viewCountBudget = getBudget(result.scenario + ".viewCount");
+
+        if (viewCountBudget >= 0 && result.viewCount >= 0) {
+            assertTrue(result + ": over the budget of " + viewCountBudget + " views.",
+                    result.viewCount <= viewCountBudget);
+        }
+    }
+
+    private static void report(Result result) {
+        File directory = RESULTS_FILE.getParentFile();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        Writer writer = null;
+
+        try {
+            writer = new FileWriter(RESULTS_FILE, true);
+            writer.write(System.currentTimeMillis() + " " + result + "\n");
+        } catch (IOException ignored) {
+            // The budgets are still checked, only the record is missing.
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private long getBudget(String key) {
+        String value = System.getProperty(OVERRIDE_PREFIX + key, mBudgets.getProperty(key));
+        return value != null ? Long.parseLong(value.trim()) : -1;
+    }
+
+    private long allocatedBytes() {
+        if (mThreadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) mThreadBean;
+
+            if (threadBean.isThreadAllocatedMemorySupported()
+                    && threadBean.isThreadAllocatedMemoryEnabled()) {
+                return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return -1;
+    }
+
+    static int countViews(View view) {
+        int count = 1;
+
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+
+        return count;
+    }
+
+    static class Result {
+        final String scenario;
+        final long wallNanos;
+        final long allocatedBytes;
+        int viewCount = -1;
+
+        Result(String scenario, long wallNanos, long allocatedBytes) {
+            this.scenario = scenario;
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-24s %8.2f ms %12d bytes %6d views",
+                    scenario, wallNanos / 1e6, allocatedBytes, viewCount);
+        }
+    }
+}
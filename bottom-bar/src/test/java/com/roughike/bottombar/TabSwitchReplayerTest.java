@@ -0,0 +1,172 @@
+package com.roughike.bottombar;
+
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/*
+ * BottomBar library for Android
+ * Copyright (c) 2016 Iiro Krankka (http://github.com/roughike).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Records touches on a BottomBar and plays them back into it.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class TabSwitchReplayerTest {
+    private static final int TAB_COUNT = 3;
+    private static final int PHONE_WIDTH_DP = 360;
+    private static final int PHONE_HEIGHT_DP = 640;
+
+    private BottomBar mBottomBar;
+    private final List<Integer> mSelections = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        BottomBarPerformanceTest.TestActivity activity =
+                Robolectric.setupActivity(BottomBarPerformanceTest.TestActivity.class);
+        mBottomBar = BottomBar.attach(activity, null);
+
+        BottomBarTab[] items = new BottomBarTab[TAB_COUNT];
+
+        for (int i = 0; i < TAB_COUNT; i++) {
+            items[i] = new BottomBarTab(new ColorDrawable(Color.GRAY), "Tab " + i);
+        }
+
+        mBottomBar.setItems(items);
+        mBottomBar.addOnTabChangeListener(new OnTabChangeListener() {
+            @Override
+            public void onTabSelected(int position) {
+                mSelections.add(position);
+            }
+
+            @Override
+            public void onTabUnselected(int position) {
+            }
+
+            @Override
+            public void onTabReselected(int position) {
+            }
+        }, BottomBar.DELIVER_IMMEDIATELY);
+
+        float density = activity.getResources().getDisplayMetrics().density;
+        int width = (int) (PHONE_WIDTH_DP * density);
+        int height = (int) (PHONE_HEIGHT_DP * density);
+
+        mBottomBar.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+        mBottomBar.layout(0, 0, width, height);
+    }
+
+    @Test
+    public void replaysTheTouchesOnTheTabs() throws Exception {
+        TabSwitchRecorder recorder = new TabSwitchRecorder();
+        mBottomBar.setTabSwitchRecorder(recorder);
+
+        // A tap on the content isn't recorded, a tap on the last tab is.
+        tap(mBottomBar.getWidth() / 2f, mBottomBar.getHeight() / 4f);
+        float[] tabCenter = tabCenter(TAB_COUNT - 1);
+        tap(tabCenter[0], tabCenter[1]);
+
+        assertEquals(TAB_COUNT - 1, (int) mSelections.get(0));
+
+        mBottomBar.setTabSwitchRecorder(null);
+        mBottomBar.selectTabAtPosition(0, false);
+        mSelections.clear();
+
+        TabSwitchReplayer replayer = new TabSwitchReplayer(recorder.toByteArray());
+
+        // Down, up and the selection that followed.
+        assertEquals(3, replayer.getEventCount());
+
+        TabSwitchRecorder appRecorder = new TabSwitchRecorder();
+        int emptySize = appRecorder.size();
+        mBottomBar.setTabSwitchRecorder(appRecorder);
+
+        final TabSwitchReplayer.Result[] result = new TabSwitchReplayer.Result[1];
+        replayer.setSpeed(10);
+        replayer.start(mBottomBar, new TabSwitchReplayer.OnReplayListener() {
+            @Override
+            public void onConfigurationChange(int orientation) {
+            }
+
+            @Override
+            public void onReplayFinished(TabSwitchReplayer.Result replayResult) {
+                result[0] = replayResult;
+            }
+        });
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertNotNull(result[0]);
+        assertEquals(1, mSelections.size());
+        assertEquals(TAB_COUNT - 1, (int) mSelections.get(0));
+
+        // The app's recorder is back, and didn't record the replay.
+        assertSame(appRecorder, mBottomBar.getTabSwitchRecorder());
+        assertEquals(emptySize, appRecorder.size());
+    }
+
+    private float[] tabCenter(int position) {
+        ViewGroup itemContainer = (ViewGroup) mBottomBar.findViewById(R.id.bb_bottom_bar_item_container);
+        View tab = itemContainer.getChildAt(position);
+
+        float x = tab.getWidth() / 2f;
+        float y = tab.getHeight() / 2f;
+        View view = tab;
+
+        while (view != mBottomBar) {
+            x += view.getLeft() + view.getTranslationX();
+            y += view.getTop() + view.getTranslationY();
+            view = (View) view.getParent();
+        }
+
+        return new float[]{x, y};
+    }
+
+    private void tap(float x, float y) {
+        long downTime = SystemClock.uptimeMillis();
+
+        MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        mBottomBar.dispatchTouchEvent(down);
+        down.recycle();
+
+        MotionEvent up = MotionEvent.obtain(downTime, downTime + 50, MotionEvent.ACTION_UP, x, y, 0);
+        mBottomBar.dispatchTouchEvent(up);
+        up.recycle();
+
+        ShadowLooper.runUiThreadTasks();
+    }
+}